@@ -0,0 +1,73 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BufferPool - Reusable direct buffers for copying file data.
+ *
+ * Direct buffers let the JVM hand data to the OS without an extra copy, but they are slow to
+ * allocate and only freed by the garbage collector. Copy loops borrow one from the pool and give
+ * it back when done, so writing thousands of files allocates only a handful of buffers.
+ */
+public class BufferPool
+{
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * Constructs a pool.
+     *
+     * @param bufferSize Capacity of each buffer in bytes.
+     * @param maxPooled Maximum number of idle buffers kept; extra buffers are left to the GC.
+     */
+    public BufferPool(int bufferSize, int maxPooled)
+    {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, allocating a new one if none is idle.
+     *
+     * @return A direct buffer of getBufferSize() bytes.
+     */
+    public ByteBuffer acquire()
+    {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null)
+        {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Returns a buffer to the pool. The caller must not use it afterwards.
+     *
+     * @param buffer A buffer obtained from acquire().
+     */
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer.isDirect() && buffer.capacity() == bufferSize && pooled.incrementAndGet() <= maxPooled)
+        {
+            free.offer(buffer.clear());
+        }
+        else if (buffer.isDirect() && buffer.capacity() == bufferSize)
+        {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the capacity of the buffers in this pool.
+     *
+     * @return Buffer size in bytes.
+     */
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+}
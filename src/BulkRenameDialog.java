@@ -0,0 +1,101 @@
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * BulkRenameDialog - Asks for a pattern and template and previews the resulting renames.
+ *
+ * OK is only enabled while the plan is free of collisions and renames something, and stays
+ * disabled until the preview has caught up with the text typed so far.
+ */
+public class BulkRenameDialog extends Dialog<RenameService.RenamePlan>
+{
+    private final TextField patternField = new TextField("^(.*)$");
+    private final TextField templateField = new TextField("$1");
+    private final Label summary = new Label();
+    private final ListView<String> preview = new ListView<>();
+    private final PauseTransition typingPause = new PauseTransition(Duration.millis(200));
+    private final Path directory;
+    private final Collection<String> names;
+    private RenameService.RenamePlan plan;
+
+    /**
+     * Constructs a BulkRenameDialog.
+     *
+     * @param directory Directory whose entries are renamed.
+     * @param names     Names currently in the directory.
+     */
+    public BulkRenameDialog(Path directory, Collection<String> names)
+    {
+        this.directory = directory;
+        this.names = names;
+
+        setTitle("Bulk Rename");
+        setHeaderText("Rename every name matching the pattern.\n"
+                + "Template: $1 inserts a group, {n} the match number, {n:4} the number padded to 4 digits.");
+        getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        GridPane fields = new GridPane();
+        fields.setHgap(8);
+        fields.setVgap(8);
+        fields.addRow(0, new Label("Pattern:"), patternField);
+        fields.addRow(1, new Label("New name:"), templateField);
+
+        preview.setPrefSize(480, 260);
+        getDialogPane().setContent(new VBox(8, fields, summary, preview));
+
+        // Re-plan once typing pauses rather than on every keystroke
+        typingPause.setOnFinished(e -> updatePreview());
+        patternField.textProperty().addListener((obs, old, text) -> onInputChanged());
+        templateField.textProperty().addListener((obs, old, text) -> onInputChanged());
+
+        // Plan again from the fields as they are now, so the result never lags behind the input
+        setResultConverter(button ->
+        {
+            if (button != ButtonType.OK)
+            {
+                return null;
+            }
+            typingPause.stop();
+            updatePreview();
+            return plan.isValid() ? plan : null;
+        });
+
+        Platform.runLater(patternField::requestFocus);
+        updatePreview();
+    }
+
+    // The preview is stale until the pause ends, so OK waits for it
+    private void onInputChanged()
+    {
+        getDialogPane().lookupButton(ButtonType.OK).setDisable(true);
+        typingPause.playFromStart();
+    }
+
+    // Computes the plan for the current input and shows problems first, then the renames
+    private void updatePreview()
+    {
+        plan = RenameService.plan(directory, names, patternField.getText(), templateField.getText());
+
+        List<String> rows = new ArrayList<>();
+        for (String problem : plan.getProblems())
+        {
+            rows.add("! " + problem);
+        }
+        plan.getRenames().forEach((from, to) -> rows.add(from + " → " + to));
+
+        summary.setText(plan.summary());
+        preview.getItems().setAll(rows);
+
+        Node ok = getDialogPane().lookupButton(ButtonType.OK);
+        ok.setDisable(!plan.isValid());
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * ChecksumAlgorithm - Checksums supported by ChecksumService.
+ *
+ * TREE_SHA256 hashes fixed-size segments independently and then hashes the list of segment
+ * digests, so a single large file can be hashed on all cores.
+ */
+public enum ChecksumAlgorithm
+{
+    CRC32C("crc32c", "CRC32C"),
+    SHA256("sha256", "SHA-256"),
+    TREE_SHA256("tree-sha256", "Tree SHA-256");
+
+    private final String id;
+    private final String displayName;
+
+    ChecksumAlgorithm(String id, String displayName)
+    {
+        this.id = id;
+        this.displayName = displayName;
+    }
+
+    /**
+     * Returns the short identifier, also used as manifest file extension.
+     *
+     * @return The identifier (e.g. "sha256").
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+    /**
+     * Finds the algorithm with the given identifier.
+     *
+     * @param id The identifier.
+     * @return The matching algorithm.
+     * @throws IllegalArgumentException if no algorithm has that identifier.
+     */
+    public static ChecksumAlgorithm fromId(String id)
+    {
+        for (ChecksumAlgorithm algorithm : values())
+        {
+            if (algorithm.id.equalsIgnoreCase(id))
+            {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unknown checksum algorithm: " + id);
+    }
+
+    @Override
+    public String toString()
+    {
+        return displayName;
+    }
+}
@@ -0,0 +1,615 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32C;
+
+/**
+ * ChecksumService - Computes and verifies file checksums (CRC32C, SHA-256, tree SHA-256).
+ *
+ * Large files are read as memory-mapped segments; CRC32C and tree SHA-256 hash those segments
+ * in parallel, and whole directories are hashed file-by-file in parallel. Results are cached by
+ * path, size and modification time, so re-verifying an unchanged tree does no reading at all; each
+ * algorithm keeps at most CACHE_CAPACITY entries, dropping the least recently used.
+ */
+public class ChecksumService
+{
+    public static final String MANIFEST_PREFIX = "CHECKSUMS.";
+
+    // Unit of parallel work, and the leaf size of TREE_SHA256 (changing it changes tree digests)
+    private static final int SEGMENT_SIZE = 8 * 1024 * 1024;
+    // Below this, a plain read is cheaper than setting up a mapping
+    private static final int MAP_THRESHOLD = 256 * 1024;
+    private static final int CRC32C_POLYNOMIAL = 0x82F63B78;
+    private static final int CACHE_CAPACITY = 50_000;
+
+    private final ForkJoinPool pool;
+    // Per algorithm, least recently used first; each map is guarded by its own monitor
+    private final Map<ChecksumAlgorithm, Map<Path, CacheEntry>> cache = new EnumMap<>(ChecksumAlgorithm.class);
+
+    /**
+     * Constructs a ChecksumService using all available processors.
+     */
+    public ChecksumService()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a ChecksumService.
+     *
+     * @param parallelism Number of threads used for hashing.
+     */
+    public ChecksumService(int parallelism)
+    {
+        this.pool = new ForkJoinPool(parallelism);
+        for (ChecksumAlgorithm algorithm : ChecksumAlgorithm.values())
+        {
+            cache.put(algorithm, new LinkedHashMap<>(64, 0.75f, true)
+            {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, CacheEntry> eldest)
+                {
+                    return size() > CACHE_CAPACITY;
+                }
+            });
+        }
+    }
+
+    /**
+     * Computes the checksum of a single file.
+     *
+     * @param file      The file to hash.
+     * @param algorithm The checksum algorithm.
+     * @return The checksum as lowercase hex.
+     * @throws IOException if the file can't be read.
+     */
+    public String checksum(Path file, ChecksumAlgorithm algorithm) throws IOException
+    {
+        return invoke(() -> hashCached(file, algorithm));
+    }
+
+    /**
+     * Computes checksums of every regular file below a directory (manifest files excluded).
+     *
+     * @param directory The directory to hash.
+     * @param algorithm The checksum algorithm.
+     * @return Checksums keyed by "/"-separated path relative to the directory, sorted.
+     * @throws IOException if the tree can't be walked or a file can't be read.
+     */
+    public SortedMap<String, String> checksumTree(Path directory, ChecksumAlgorithm algorithm) throws IOException
+    {
+        List<Path> files = listFiles(directory);
+
+        return invoke(() ->
+        {
+            List<ForkJoinTask<String>> tasks = new ArrayList<>(files.size());
+            for (Path file : files)
+            {
+                tasks.add(ForkJoinTask.adapt(() -> hashCached(file, algorithm)));
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            SortedMap<String, String> result = new TreeMap<>();
+            for (int i = 0; i < files.size(); i++)
+            {
+                result.put(relativeName(directory, files.get(i)), tasks.get(i).join());
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Hashes a directory tree and writes a manifest (CHECKSUMS.&lt;algorithm&gt;) into it. Each
+     * line holds a checksum, two spaces and a relative path, like sha256sum output.
+     *
+     * @param directory The directory to hash.
+     * @param algorithm The checksum algorithm.
+     * @return Path of the written manifest.
+     * @throws IOException if hashing or writing fails.
+     */
+    public Path writeManifest(Path directory, ChecksumAlgorithm algorithm) throws IOException
+    {
+        StringBuilder manifest = new StringBuilder();
+        for (Map.Entry<String, String> entry : checksumTree(directory, algorithm).entrySet())
+        {
+            manifest.append(entry.getValue()).append("  ").append(entry.getKey()).append('\n');
+        }
+
+        Path manifestPath = directory.resolve(MANIFEST_PREFIX + algorithm.getId());
+        Files.writeString(manifestPath, manifest, StandardCharsets.UTF_8);
+        return manifestPath;
+    }
+
+    /**
+     * Verifies the files of a directory against a manifest written by writeManifest.
+     *
+     * @param manifest The manifest file; its extension selects the algorithm.
+     * @return What matched, differed, went missing or is not listed.
+     * @throws IOException if the manifest can't be read.
+     */
+    public VerifyResult verify(Path manifest) throws IOException
+    {
+        String fileName = manifest.getFileName().toString();
+        if (!fileName.startsWith(MANIFEST_PREFIX))
+        {
+            throw new IllegalArgumentException("Not a checksum manifest: " + fileName);
+        }
+
+        ChecksumAlgorithm algorithm = ChecksumAlgorithm.fromId(fileName.substring(MANIFEST_PREFIX.length()));
+        Path directory = manifest.toAbsolutePath().normalize().getParent();
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8))
+        {
+            int separator = line.indexOf("  ");
+            if (line.isBlank() || line.startsWith("#") || separator < 0)
+            {
+                continue;
+            }
+            expected.put(line.substring(separator + 2), line.substring(0, separator));
+        }
+
+        VerifyResult result = new VerifyResult(manifest);
+        List<String> names = new ArrayList<>(expected.keySet());
+        List<Object> outcomes = invoke(() ->
+        {
+            List<ForkJoinTask<Object>> tasks = new ArrayList<>(names.size());
+            for (String name : names)
+            {
+                tasks.add(ForkJoinTask.adapt(() ->
+                {
+                    try
+                    {
+                        return hashCached(resolveRelative(directory, name), algorithm);
+                    }
+                    catch (IOException e)
+                    {
+                        // Reported per file instead of failing the whole verification
+                        return e;
+                    }
+                }));
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            List<Object> joined = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<Object> task : tasks)
+            {
+                joined.add(task.join());
+            }
+            return joined;
+        });
+
+        for (int i = 0; i < names.size(); i++)
+        {
+            String name = names.get(i);
+            Object outcome = outcomes.get(i);
+            if (outcome instanceof NoSuchFileException)
+            {
+                result.missing.add(name);
+            }
+            else if (outcome instanceof IOException)
+            {
+                result.unreadable.add(name + " (" + ((IOException) outcome).getMessage() + ")");
+            }
+            else if (outcome.equals(expected.get(name)))
+            {
+                result.verified++;
+            }
+            else
+            {
+                result.mismatched.add(name);
+            }
+        }
+
+        for (Path file : listFiles(directory))
+        {
+            String name = relativeName(directory, file);
+            if (!expected.containsKey(name))
+            {
+                result.untracked.add(name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets all cached checksums.
+     */
+    public void clearCache()
+    {
+        for (Map<Path, CacheEntry> entries : cache.values())
+        {
+            synchronized (entries)
+            {
+                entries.clear();
+            }
+        }
+    }
+
+    // Returns the cached checksum if size and modification time are unchanged, else hashes the file
+    private String hashCached(Path file, ChecksumAlgorithm algorithm) throws IOException
+    {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        if (!attrs.isRegularFile())
+        {
+            throw new IOException("Not a regular file: " + file);
+        }
+
+        Path key = file.toAbsolutePath().normalize();
+        Map<Path, CacheEntry> entries = cache.get(algorithm);
+        CacheEntry cached;
+        synchronized (entries)
+        {
+            cached = entries.get(key);
+        }
+        if (cached != null && cached.size == attrs.size() && cached.lastModified.equals(attrs.lastModifiedTime()))
+        {
+            return cached.digest;
+        }
+
+        String digest = hash(file, algorithm);
+        synchronized (entries)
+        {
+            entries.put(key, new CacheEntry(attrs.size(), attrs.lastModifiedTime(), digest));
+        }
+        return digest;
+    }
+
+    // Hashes one file; must run inside the pool so segment tasks can be forked
+    private String hash(Path file, ChecksumAlgorithm algorithm) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            int segments = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+
+            switch (algorithm)
+            {
+                case CRC32C:
+                {
+                    List<ForkJoinTask<Long>> tasks = new ArrayList<>(segments);
+                    for (int i = 0; i < segments; i++)
+                    {
+                        long position = (long) i * SEGMENT_SIZE;
+                        tasks.add(ForkJoinTask.adapt(() -> crc32c(channel, position, size)));
+                    }
+                    ForkJoinTask.invokeAll(tasks);
+
+                    long crc = new CRC32C().getValue();
+                    for (int i = 0; i < segments; i++)
+                    {
+                        long length = Math.min(SEGMENT_SIZE, size - (long) i * SEGMENT_SIZE);
+                        crc = i == 0 ? tasks.get(i).join() : crc32cCombine(crc, tasks.get(i).join(), length);
+                    }
+                    return String.format("%08x", crc);
+                }
+                case SHA256:
+                {
+                    // A single SHA-256 stream can't be split; parallelism comes from hashing files concurrently
+                    MessageDigest digest = sha256();
+                    for (int i = 0; i < segments; i++)
+                    {
+                        digest.update(segment(channel, (long) i * SEGMENT_SIZE, size));
+                    }
+                    return HexFormat.of().formatHex(digest.digest());
+                }
+                case TREE_SHA256:
+                {
+                    List<ForkJoinTask<byte[]>> tasks = new ArrayList<>(segments);
+                    for (int i = 0; i < segments; i++)
+                    {
+                        long position = (long) i * SEGMENT_SIZE;
+                        tasks.add(ForkJoinTask.adapt(() ->
+                        {
+                            MessageDigest leaf = sha256();
+                            leaf.update(segment(channel, position, size));
+                            return leaf.digest();
+                        }));
+                    }
+                    ForkJoinTask.invokeAll(tasks);
+
+                    MessageDigest root = sha256();
+                    for (ForkJoinTask<byte[]> task : tasks)
+                    {
+                        root.update(task.join());
+                    }
+                    return HexFormat.of().formatHex(root.digest());
+                }
+                default:
+                    throw new IllegalArgumentException("Unsupported algorithm: " + algorithm);
+            }
+        }
+    }
+
+    private static long crc32c(FileChannel channel, long position, long size) throws IOException
+    {
+        CRC32C crc = new CRC32C();
+        crc.update(segment(channel, position, size));
+        return crc.getValue();
+    }
+
+    // Maps the segment starting at position, or reads it where mapping isn't possible or worthwhile
+    private static ByteBuffer segment(FileChannel channel, long position, long size) throws IOException
+    {
+        int length = (int) Math.min(SEGMENT_SIZE, size - position);
+        if (length >= MAP_THRESHOLD)
+        {
+            try
+            {
+                return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            }
+            catch (UnsupportedOperationException e)
+            {
+                // e.g. MemoryFileSystem; fall through to a plain read
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new IOException("File shrank while hashing");
+            }
+        }
+        return buffer.flip();
+    }
+
+    // crc32_combine from zlib, for the CRC-32C (Castagnoli) polynomial
+    private static long crc32cCombine(long crc1, long crc2, long length2)
+    {
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        odd[0] = CRC32C_POLYNOMIAL & 0xFFFFFFFFL;
+        long row = 1;
+        for (int n = 1; n < 32; n++)
+        {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        // Apply length2 zero bytes to crc1, one bit of the length at a time
+        do
+        {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0)
+            {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0)
+            {
+                break;
+            }
+
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0)
+            {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>= 1;
+        }
+        while (length2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector)
+    {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1)
+        {
+            if ((vector & 1) != 0)
+            {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix)
+    {
+        for (int n = 0; n < 32; n++)
+        {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
+    private static MessageDigest sha256()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException("SHA-256 is required by every Java platform", e);
+        }
+    }
+
+    // Regular files below the directory, excluding checksum manifests
+    private static List<Path> listFiles(Path directory) throws IOException
+    {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>()
+        {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+            {
+                if (attrs.isRegularFile() && !file.getFileName().toString().startsWith(MANIFEST_PREFIX))
+                {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private static String relativeName(Path directory, Path file)
+    {
+        StringJoiner name = new StringJoiner("/");
+        for (Path part : directory.relativize(file))
+        {
+            name.add(part.toString());
+        }
+        return name.toString();
+    }
+
+    // Refuses names that would resolve outside the directory (e.g. "../secret" or an absolute path)
+    private static Path resolveRelative(Path directory, String name) throws IOException
+    {
+        Path path = directory;
+        for (String part : name.split("/"))
+        {
+            path = path.resolve(part);
+        }
+        path = path.normalize();
+        if (!path.startsWith(directory) || path.equals(directory))
+        {
+            throw new IOException("Entry outside manifest directory: " + name);
+        }
+        return path;
+    }
+
+    // Runs work on the hashing pool, unwrapping IOExceptions thrown inside it
+    private <T> T invoke(Callable<T> work) throws IOException
+    {
+        try
+        {
+            return pool.invoke(ForkJoinTask.adapt(work));
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        catch (RuntimeException e)
+        {
+            Throwable cause = e;
+            while (cause.getCause() != null && !(cause instanceof IOException))
+            {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class CacheEntry
+    {
+        final long size;
+        final FileTime lastModified;
+        final String digest;
+
+        CacheEntry(long size, FileTime lastModified, String digest)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * VerifyResult - Outcome of verifying a directory against a checksum manifest.
+     */
+    public static class VerifyResult
+    {
+        private final Path manifest;
+        private int verified;
+        private final List<String> mismatched = new ArrayList<>();
+        private final List<String> missing = new ArrayList<>();
+        private final List<String> unreadable = new ArrayList<>();
+        private final List<String> untracked = new ArrayList<>();
+
+        VerifyResult(Path manifest)
+        {
+            this.manifest = manifest;
+        }
+
+        public boolean isOk()
+        {
+            return mismatched.isEmpty() && missing.isEmpty() && unreadable.isEmpty();
+        }
+
+        public int getVerified()
+        {
+            return verified;
+        }
+
+        public List<String> getMismatched()
+        {
+            return mismatched;
+        }
+
+        public List<String> getMissing()
+        {
+            return missing;
+        }
+
+        public List<String> getUnreadable()
+        {
+            return unreadable;
+        }
+
+        public List<String> getUntracked()
+        {
+            return untracked;
+        }
+
+        /**
+         * Returns a one-line summary of the counts.
+         *
+         * @return Summary text.
+         */
+        public String summary()
+        {
+            return (isOk() ? "OK" : "FAILED") + ": " + verified + " verified, "
+                    + mismatched.size() + " changed, " + missing.size() + " missing, "
+                    + unreadable.size() + " unreadable, " + untracked.size() + " not in manifest";
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder report = new StringBuilder("Verified against " + manifest + "\n" + summary() + "\n");
+            appendSection(report, "Changed", mismatched);
+            appendSection(report, "Missing", missing);
+            appendSection(report, "Unreadable", unreadable);
+            appendSection(report, "Not in manifest", untracked);
+            return report.toString();
+        }
+
+        private static void appendSection(StringBuilder report, String title, List<String> names)
+        {
+            if (names.isEmpty())
+            {
+                return;
+            }
+
+            report.append('\n').append(title).append(":\n");
+            for (String name : names)
+            {
+                report.append("  ").append(name).append('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CompareView - Window showing the differences between two directories side by side.
+ *
+ * The comparison runs in the background and pushes differences into a queue; a timer moves
+ * them into the table a few times per second, so the table fills while the trees are still being
+ * walked. Identical entries are only counted, and at most MAX_ROWS differences are kept.
+ */
+public class CompareView extends Stage
+{
+    private static final int MAX_ROWS = 200_000;
+    private static final Duration DRAIN_INTERVAL = Duration.millis(100);
+
+    private final FileController controller;
+    private final String leftName;
+    private final String rightName;
+    private final TableView<DirectoryComparer.Entry> table = new TableView<>();
+    private final Label summary = new Label("Comparing...");
+    private final Button checkContents = new Button("Check contents");
+    private final ConcurrentLinkedQueue<DirectoryComparer.Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Timeline drainTimer = new Timeline(new KeyFrame(DRAIN_INTERVAL, e -> drain()));
+    private volatile boolean closed;
+
+    /**
+     * Constructs a CompareView; call start() to run the comparison.
+     *
+     * @param controller Controller whose current directory the names are resolved against.
+     * @param leftName   Left directory.
+     * @param rightName  Right directory.
+     */
+    public CompareView(FileController controller, String leftName, String rightName)
+    {
+        this.controller = controller;
+        this.leftName = leftName;
+        this.rightName = rightName;
+
+        TableColumn<DirectoryComparer.Entry, String> left = new TableColumn<>(leftName);
+        left.setCellValueFactory(row -> new ReadOnlyStringWrapper(describe(row.getValue(), row.getValue().getLeft())));
+        TableColumn<DirectoryComparer.Entry, String> status = new TableColumn<>("Status");
+        status.setCellValueFactory(row -> new ReadOnlyStringWrapper(
+                row.getValue().getStatus() + " (" + row.getValue().getReason() + ")"));
+        TableColumn<DirectoryComparer.Entry, String> right = new TableColumn<>(rightName);
+        right.setCellValueFactory(row -> new ReadOnlyStringWrapper(describe(row.getValue(), row.getValue().getRight())));
+
+        left.setPrefWidth(320);
+        status.setPrefWidth(220);
+        right.setPrefWidth(320);
+        table.getColumns().add(left);
+        table.getColumns().add(status);
+        table.getColumns().add(right);
+        table.setPlaceholder(new Label("No differences found yet."));
+
+        checkContents.setDisable(true);
+        checkContents.setOnAction(e -> onCheckContents());
+
+        HBox toolbar = new HBox(8, checkContents, summary);
+        toolbar.setPadding(new Insets(6));
+        BorderPane root = new BorderPane(table);
+        root.setTop(toolbar);
+
+        setTitle("Compare: " + leftName + " ↔ " + rightName);
+        setScene(new Scene(root, 900, 600));
+
+        drainTimer.setCycleCount(Timeline.INDEFINITE);
+        // Closing also cancels the comparison, which polls the flag before each pair of directories
+        setOnHidden(e ->
+        {
+            closed = true;
+            drainTimer.stop();
+            pending.clear();
+        });
+    }
+
+    /**
+     * Shows the window and starts the comparison in the background.
+     */
+    public void start()
+    {
+        show();
+        drainTimer.play();
+
+        CompletableFuture.supplyAsync(() ->
+        {
+            try
+            {
+                return controller.compareDirectories(leftName, rightName, this::offer, () -> closed);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((result, error) -> Platform.runLater(() ->
+        {
+            drainTimer.stop();
+            drain();
+            if (error != null)
+            {
+                Exception cause = MainView.unwrap(error);
+                ErrorManager.handle(cause, "comparing directories");
+                summary.setText("Comparison failed: " + cause.getMessage());
+                return;
+            }
+
+            summary.setText(result.summary() + (dropped.get() > 0 ? "; " + dropped.get() + " not shown" : ""));
+            checkContents.setDisable(false);
+        }));
+    }
+
+    // Called from the comparing threads; keeps differences only, and no more than the table may hold
+    private void offer(DirectoryComparer.Entry entry)
+    {
+        if (closed || entry.getStatus() == DirectoryComparer.Status.SAME)
+        {
+            return;
+        }
+        if (queued.incrementAndGet() > MAX_ROWS)
+        {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        pending.add(entry);
+    }
+
+    // Moves queued differences into the table
+    private void drain()
+    {
+        List<DirectoryComparer.Entry> batch = new ArrayList<>();
+        DirectoryComparer.Entry entry;
+        while ((entry = pending.poll()) != null)
+        {
+            batch.add(entry);
+        }
+        if (!batch.isEmpty())
+        {
+            table.getItems().addAll(batch);
+            summary.setText("Comparing... " + table.getItems().size() + " difference(s) so far");
+        }
+    }
+
+    // Compares the contents of the files that only differ in modification time; identical ones are removed
+    private void onCheckContents()
+    {
+        List<DirectoryComparer.Entry> candidates = new ArrayList<>();
+        for (DirectoryComparer.Entry entry : table.getItems())
+        {
+            if ("modified time".equals(entry.getReason()))
+            {
+                candidates.add(entry);
+            }
+        }
+        if (candidates.isEmpty())
+        {
+            summary.setText("No files with only a different modification time.");
+            return;
+        }
+
+        checkContents.setDisable(true);
+        summary.setText("Checking contents of " + candidates.size() + " file(s)...");
+
+        CompletableFuture.supplyAsync(() ->
+        {
+            Map<DirectoryComparer.Entry, DirectoryComparer.Entry> checked = new IdentityHashMap<>();
+            try (ErrorManager.Batch failures = ErrorManager.batch("comparing file contents"))
+            {
+                for (DirectoryComparer.Entry candidate : candidates)
+                {
+                    if (closed)
+                    {
+                        break;
+                    }
+                    try
+                    {
+                        checked.put(candidate, controller.checkContent(candidate));
+                    }
+                    catch (IOException e)
+                    {
+                        failures.handle(e);
+                    }
+                }
+            }
+            return checked;
+        }).thenAccept(checked -> Platform.runLater(() ->
+        {
+            table.getItems().replaceAll(row -> checked.getOrDefault(row, row));
+            table.getItems().removeIf(row -> row.getStatus() == DirectoryComparer.Status.SAME);
+
+            long same = checked.values().stream().filter(row -> row.getStatus() == DirectoryComparer.Status.SAME).count();
+            summary.setText("Checked " + checked.size() + " file(s): " + same + " identical, "
+                    + (checked.size() - same) + " different content");
+            checkContents.setDisable(false);
+        }));
+    }
+
+    // Shows one side of an entry: its path and size, or nothing if it doesn't exist on that side
+    private static String describe(DirectoryComparer.Entry entry, FileItem item)
+    {
+        if (item == null)
+        {
+            return "";
+        }
+        return entry.getRelativePath() + (item.isDirectory() ? "/" : "  (" + item.getSize() + " bytes)");
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CountingFileSystemProvider - In-memory filesystem provider that counts every provider call.
+ *
+ * Each provider method corresponds to (at least) one system call on a disk filesystem, so the
+ * counts show how many filesystem round trips an operation costs. Filesystems created through
+ * this provider behave exactly like MemoryFileSystem.create(...) ones.
+ */
+public class CountingFileSystemProvider extends MemoryFileSystemProvider
+{
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the number of calls per provider method since the last reset.
+     *
+     * @return Call counts keyed by method name, sorted.
+     */
+    public Map<String, Long> getCounts()
+    {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.forEach((name, count) ->
+        {
+            if (count.sum() > 0)
+            {
+                snapshot.put(name, count.sum());
+            }
+        });
+        return snapshot;
+    }
+
+    /**
+     * Returns the total number of provider calls since the last reset.
+     *
+     * @return Total call count.
+     */
+    public long getTotal()
+    {
+        long total = 0;
+        for (LongAdder count : counts.values())
+        {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Sets all counts back to zero.
+     */
+    public void reset()
+    {
+        counts.values().forEach(LongAdder::reset);
+    }
+
+    private void count(String method)
+    {
+        counts.computeIfAbsent(method, name -> new LongAdder()).increment();
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options,
+                                              FileAttribute<?>... attrs) throws IOException
+    {
+        count("newByteChannel");
+        return super.newByteChannel(path, options, attrs);
+    }
+
+    @Override
+    public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options,
+                                      FileAttribute<?>... attrs) throws IOException
+    {
+        count("newFileChannel");
+        return super.newFileChannel(path, options, attrs);
+    }
+
+    @Override
+    public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter)
+            throws IOException
+    {
+        count("newDirectoryStream");
+        return super.newDirectoryStream(dir, filter);
+    }
+
+    @Override
+    public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException
+    {
+        count("createDirectory");
+        super.createDirectory(dir, attrs);
+    }
+
+    @Override
+    public void delete(Path path) throws IOException
+    {
+        count("delete");
+        super.delete(path);
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyOption... options) throws IOException
+    {
+        count("copy");
+        super.copy(source, target, options);
+    }
+
+    @Override
+    public void move(Path source, Path target, CopyOption... options) throws IOException
+    {
+        count("move");
+        super.move(source, target, options);
+    }
+
+    @Override
+    public boolean isSameFile(Path path, Path path2) throws IOException
+    {
+        count("isSameFile");
+        return super.isSameFile(path, path2);
+    }
+
+    @Override
+    public boolean isHidden(Path path)
+    {
+        count("isHidden");
+        return super.isHidden(path);
+    }
+
+    @Override
+    public void checkAccess(Path path, AccessMode... modes) throws IOException
+    {
+        count("checkAccess");
+        super.checkAccess(path, modes);
+    }
+
+    @Override
+    public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options)
+    {
+        count("getFileAttributeView");
+        return super.getFileAttributeView(path, type, options);
+    }
+
+    @Override
+    public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options)
+            throws IOException
+    {
+        count("readAttributes");
+        return super.readAttributes(path, type, options);
+    }
+
+    @Override
+    public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options)
+            throws IOException
+    {
+        count("readAttributes");
+        return super.readAttributes(path, attributes, options);
+    }
+
+    @Override
+    public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException
+    {
+        count("setAttribute");
+        super.setAttribute(path, attribute, value, options);
+    }
+}
@@ -0,0 +1,144 @@
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.scene.control.TreeItem;
+import javafx.util.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+/**
+ * DirectoryTreeItem - Tree node for a directory whose children are loaded when it is expanded.
+ *
+ * Children are listed in the background by a DirectoryTreeLoader, and released again once the
+ * node has stayed collapsed for a while.
+ */
+public class DirectoryTreeItem extends TreeItem<FileItem>
+{
+    private static final Duration RELEASE_DELAY = Duration.seconds(30);
+
+    private final DirectoryTreeLoader loader;
+    private final PauseTransition releaseTimer = new PauseTransition(RELEASE_DELAY);
+
+    private boolean loaded;
+    private boolean loading;
+
+    // Bumped by reload(), so a listing that was already running when the directory changed is dropped
+    private int generation;
+
+    /**
+     * Constructs a DirectoryTreeItem for the given directory.
+     *
+     * @param directory The directory this node represents.
+     * @param loader    Loader used to list its subdirectories.
+     */
+    public DirectoryTreeItem(FileItem directory, DirectoryTreeLoader loader)
+    {
+        super(directory);
+        this.loader = loader;
+
+        releaseTimer.setOnFinished(e -> release());
+        expandedProperty().addListener((obs, wasExpanded, expanded) ->
+        {
+            if (expanded)
+            {
+                releaseTimer.stop();
+                loadChildren();
+            }
+            else
+            {
+                releaseTimer.playFromStart();
+            }
+        });
+    }
+
+    // Unloaded directories may have children; loaded ones only if they actually do
+    @Override
+    public boolean isLeaf()
+    {
+        return loaded && getChildren().isEmpty();
+    }
+
+    /**
+     * Drops the cached listing after the directory changed, and lists it again if it is showing.
+     */
+    public void reload()
+    {
+        loader.release(getValue().getPath());
+        generation++;
+        if (!loaded)
+        {
+            return;
+        }
+
+        loaded = false;
+        if (isExpanded())
+        {
+            loadChildren();
+        }
+        else
+        {
+            getChildren().clear();
+        }
+    }
+
+    // Lists subdirectories in the background, then prefetches the likely next ones
+    private void loadChildren()
+    {
+        if (loaded || loading)
+        {
+            return;
+        }
+
+        loading = true;
+        int requested = generation;
+        loader.load(getValue().getPath()).whenComplete((items, error) -> Platform.runLater(() ->
+        {
+            loading = false;
+            if (requested != generation)
+            {
+                if (isExpanded())
+                {
+                    loadChildren();
+                }
+                return;
+            }
+
+            if (error != null)
+            {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                ErrorManager.handle(cause instanceof Exception ? (Exception) cause : new Exception(cause),
+                        "listing directory");
+                setExpanded(false);
+                return;
+            }
+
+            showChildren(items);
+            loader.prefetch(items);
+        }));
+    }
+
+    // Replaces the children with nodes for the given subdirectories
+    private void showChildren(List<FileItem> items)
+    {
+        DirectoryTreeItem[] children = new DirectoryTreeItem[items.size()];
+        for (int i = 0; i < children.length; i++)
+        {
+            children[i] = new DirectoryTreeItem(items.get(i), loader);
+        }
+
+        getChildren().setAll(children);
+        loaded = true;
+    }
+
+    // Frees the children of a node that stayed collapsed
+    private void release()
+    {
+        if (isExpanded() || !loaded)
+        {
+            return;
+        }
+
+        getChildren().clear();
+        loaded = false;
+        loader.release(getValue().getPath());
+    }
+}
@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * DirectoryTreeLoader - Lists subdirectories for the tree view off the FX thread.
+ *
+ * Listings are cached so that a prefetched directory expands instantly. Prefetching runs
+ * on its own small pool so it never delays a listing the user is actually waiting for.
+ * The cache keeps the CACHE_CAPACITY most recently used listings, and a listing that was
+ * still running when its directory was released is returned but not cached.
+ */
+public class DirectoryTreeLoader
+{
+    private static final int LOAD_THREADS = 2;
+    private static final int PREFETCH_BUDGET = 2;
+    private static final int PREFETCH_QUEUE = 16;
+    private static final int PREFETCH_PER_DIRECTORY = 4;
+    private static final int CACHE_CAPACITY = 1024;
+
+    private final FileManager fileManager;
+    private final ExecutorService loadExecutor;
+    private final ThreadPoolExecutor prefetchExecutor;
+    private final Map<Path, List<FileItem>> cache = new LinkedHashMap<>(64, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, List<FileItem>> eldest)
+        {
+            return size() > CACHE_CAPACITY;
+        }
+    };
+
+    // Bumped by every release, so listings that started before it are not cached (guarded by cache)
+    private long generation;
+
+    /**
+     * Constructs a DirectoryTreeLoader backed by the given FileManager.
+     *
+     * @param fileManager Used to list directories.
+     */
+    public DirectoryTreeLoader(FileManager fileManager)
+    {
+        this.fileManager = fileManager;
+        this.loadExecutor = Executors.newFixedThreadPool(LOAD_THREADS, daemonThreads("tree-load"));
+
+        // Oldest prefetches are dropped first: the newest shown directory is the likeliest next click
+        this.prefetchExecutor = new ThreadPoolExecutor(PREFETCH_BUDGET, PREFETCH_BUDGET,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(PREFETCH_QUEUE),
+                daemonThreads("tree-prefetch"),
+                new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+
+    /**
+     * Returns the subdirectories of a directory, from the cache when available.
+     *
+     * @param directory The directory to list.
+     * @return Future completing with the subdirectories, sorted by name.
+     */
+    public CompletableFuture<List<FileItem>> load(Path directory)
+    {
+        List<FileItem> cached;
+        synchronized (cache)
+        {
+            cached = cache.get(directory);
+        }
+        if (cached != null)
+        {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return CompletableFuture.supplyAsync(() ->
+        {
+            try
+            {
+                return list(directory);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }, loadExecutor);
+    }
+
+    /**
+     * Lists, in the background, the subdirectories the user is most likely to open next
+     * (the most recently modified ones).
+     *
+     * @param subdirectories Subdirectories of the directory being shown.
+     */
+    public void prefetch(List<FileItem> subdirectories)
+    {
+        List<FileItem> candidates = new ArrayList<>(subdirectories);
+        candidates.sort(Comparator.comparing(FileItem::getLastModified).reversed());
+
+        for (FileItem item : candidates.subList(0, Math.min(PREFETCH_PER_DIRECTORY, candidates.size())))
+        {
+            Path path = item.getPath();
+            if (isCached(path))
+            {
+                continue;
+            }
+
+            prefetchExecutor.execute(() ->
+            {
+                try
+                {
+                    if (!isCached(path))
+                    {
+                        list(path);
+                    }
+                }
+                catch (IOException e)
+                {
+                    // Only a prefetch; a real expand will report the error
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops cached listings for a directory and everything below it.
+     *
+     * @param directory The directory being released.
+     */
+    public void release(Path directory)
+    {
+        synchronized (cache)
+        {
+            generation++;
+            cache.keySet().removeIf(path -> path.startsWith(directory));
+        }
+    }
+
+    // Checks without counting as a use, so prefetch checks don't keep unopened listings alive
+    private boolean isCached(Path directory)
+    {
+        synchronized (cache)
+        {
+            return cache.containsKey(directory);
+        }
+    }
+
+    // Lists the subdirectories of a directory and caches the result, unless a release happened meanwhile
+    private List<FileItem> list(Path directory) throws IOException
+    {
+        long started;
+        synchronized (cache)
+        {
+            started = generation;
+        }
+
+        List<FileItem> directories = new ArrayList<>();
+        for (FileItem item : fileManager.listDirectory(directory))
+        {
+            if (item.isDirectory())
+            {
+                directories.add(item);
+            }
+        }
+        directories.sort(Comparator.comparing(FileItem::getName, String.CASE_INSENSITIVE_ORDER));
+
+        List<FileItem> result = List.copyOf(directories);
+        synchronized (cache)
+        {
+            if (generation == started)
+            {
+                cache.put(directory, result);
+            }
+        }
+        return result;
+    }
+
+    // Background threads must not keep the application alive after the window closes
+    private static ThreadFactory daemonThreads(String name)
+    {
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,209 @@
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * DirectoryTrie - In-memory trie of recently seen directory names, used for path autocomplete.
+ *
+ * Names are matched case-insensitively, either by prefix or as a subsequence ("dcmnts" matches
+ * "Documents"). Only the most recently added directories are kept.
+ */
+public class DirectoryTrie
+{
+    private static final class Node
+    {
+        final Map<Character, Node> children = new HashMap<>(4);
+        final List<Path> paths = new ArrayList<>(1);
+    }
+
+    private final Node root = new Node();
+    private final int capacity;
+    private final LinkedHashMap<Path, String> recent = new LinkedHashMap<>();
+
+    /**
+     * Constructs a DirectoryTrie.
+     *
+     * @param capacity Maximum number of directories remembered.
+     */
+    public DirectoryTrie(int capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a directory, or marks it as recently seen if it is already present.
+     *
+     * @param directory The directory path (its file name is the key).
+     */
+    public synchronized void add(Path directory)
+    {
+        Path fileName = directory.getFileName();
+        if (fileName == null)
+        {
+            return;
+        }
+
+        String key = fileName.toString().toLowerCase(Locale.ROOT);
+        if (recent.remove(directory) == null)
+        {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++)
+            {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+            }
+            node.paths.add(directory);
+        }
+        recent.put(directory, key);
+
+        if (recent.size() > capacity)
+        {
+            Iterator<Map.Entry<Path, String>> eldest = recent.entrySet().iterator();
+            Map.Entry<Path, String> entry = eldest.next();
+            eldest.remove();
+            remove(root, entry.getValue(), 0, entry.getKey());
+        }
+    }
+
+    /**
+     * Forgets every remembered directory directly inside the given one.
+     *
+     * @param parent The parent directory.
+     */
+    public synchronized void removeChildren(Path parent)
+    {
+        Iterator<Map.Entry<Path, String>> entries = recent.entrySet().iterator();
+        while (entries.hasNext())
+        {
+            Map.Entry<Path, String> entry = entries.next();
+            if (parent.equals(entry.getKey().getParent()))
+            {
+                entries.remove();
+                remove(root, entry.getValue(), 0, entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Finds directories whose name matches the query, best matches first: prefix matches, then
+     * substring matches, then subsequence matches, shorter names before longer ones.
+     *
+     * @param query  Typed text (may be empty to match everything).
+     * @param filter Only paths accepted by this filter are returned.
+     * @param limit  Maximum number of results.
+     * @return Matching directory paths.
+     */
+    public synchronized List<Path> search(String query, Predicate<Path> filter, int limit)
+    {
+        String needle = query.toLowerCase(Locale.ROOT);
+        int cap = limit * 8;
+        LinkedHashSet<Path> found = new LinkedHashSet<>();
+
+        // Prefix matches are a single walk down the trie
+        Node node = root;
+        for (int i = 0; i < needle.length() && node != null; i++)
+        {
+            node = node.children.get(needle.charAt(i));
+        }
+        if (node != null)
+        {
+            collect(node, filter, found, cap);
+        }
+
+        if (found.size() < cap)
+        {
+            fuzzy(root, needle, 0, filter, found, cap);
+        }
+
+        List<Path> ranked = new ArrayList<>(found);
+        ranked.sort(Comparator
+                .comparingInt((Path p) -> rank(p, needle))
+                .thenComparingInt(p -> p.getFileName().toString().length())
+                .thenComparing(p -> p.getFileName().toString(), String.CASE_INSENSITIVE_ORDER));
+        return ranked.subList(0, Math.min(limit, ranked.size()));
+    }
+
+    /**
+     * Returns the number of directories currently remembered.
+     *
+     * @return Number of entries.
+     */
+    public synchronized int size()
+    {
+        return recent.size();
+    }
+
+    // Walks the trie, advancing through the query whenever an edge matches its next character
+    private static void fuzzy(Node node, String needle, int matched, Predicate<Path> filter,
+                              Set<Path> found, int cap)
+    {
+        if (matched == needle.length())
+        {
+            collect(node, filter, found, cap);
+            return;
+        }
+
+        char next = needle.charAt(matched);
+        for (Map.Entry<Character, Node> edge : node.children.entrySet())
+        {
+            if (found.size() >= cap)
+            {
+                return;
+            }
+            fuzzy(edge.getValue(), needle, edge.getKey() == next ? matched + 1 : matched, filter, found, cap);
+        }
+    }
+
+    // Adds every accepted path at or below the node
+    private static void collect(Node node, Predicate<Path> filter, Set<Path> found, int cap)
+    {
+        for (Path path : node.paths)
+        {
+            if (found.size() >= cap)
+            {
+                return;
+            }
+            if (filter.test(path))
+            {
+                found.add(path);
+            }
+        }
+
+        for (Node child : node.children.values())
+        {
+            if (found.size() >= cap)
+            {
+                return;
+            }
+            collect(child, filter, found, cap);
+        }
+    }
+
+    // Removes a path and prunes nodes left without paths or children
+    private static boolean remove(Node node, String key, int depth, Path path)
+    {
+        if (depth == key.length())
+        {
+            node.paths.remove(path);
+        }
+        else
+        {
+            Node child = node.children.get(key.charAt(depth));
+            if (child != null && remove(child, key, depth + 1, path))
+            {
+                node.children.remove(key.charAt(depth));
+            }
+        }
+        return node.paths.isEmpty() && node.children.isEmpty();
+    }
+
+    // 0 = prefix, 1 = substring, 2 = subsequence
+    private static int rank(Path path, String needle)
+    {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.startsWith(needle))
+        {
+            return 0;
+        }
+        return name.contains(needle) ? 1 : 2;
+    }
+}
@@ -1,50 +1,323 @@
-import javafx.scene.control.Alert;
+import javafx.application.Platform;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TitledPane;
 import java.io.IOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.AccessDeniedException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * ErrorManager - Collects errors from any thread and reports them without blocking the caller.
+ *
+ * Errors are queued and, a few times per second, aggregated by operation and exception type.
+ * Each group is logged to the console once per flush and shown as a single row (with a count)
+ * in the error panel, so a burst of thousands of failures costs the caller almost nothing.
+ */
 public class ErrorManager
 {
+    private static final long FLUSH_INTERVAL_MS = 250;
+    private static final int MAX_PENDING = 100_000;
+    private static final int MAX_GROUPS = 500;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private static final ConcurrentLinkedQueue<Report> pending = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pendingCount = new AtomicInteger();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final AtomicBoolean started = new AtomicBoolean();
+
+    // Aggregated groups, only touched by the flush thread; least recently updated evicted first
+    private static final LinkedHashMap<String, Group> groups = new LinkedHashMap<>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Group> eldest)
+        {
+            return size() > MAX_GROUPS;
+        }
+    };
+
+    // Rows shown in the panel, only touched on the FX thread
+    private static final LinkedHashMap<String, String> rows = new LinkedHashMap<>();
+
+    private static volatile TitledPane panel;
+    private static volatile ListView<String> log;
+
     /**
-     * Handles errors gracefully by printing console message and showing alert popup.
+     * Reports an error. Safe to call from any thread; never blocks on the user.
      *
      * @param e Exception thrown
      * @param context Description of the operation being performed
      */
     public static void handle(Exception e, String context)
     {
-        String message;
+        publish(new Report(context, e.getClass().getSimpleName(), describe(e, context), e.getMessage(), 1));
+    }
+
+    /**
+     * Starts collecting the failures of a bulk operation, to be reported as one summary when
+     * the batch is closed.
+     *
+     * @param context Description of the bulk operation
+     * @return The batch; failures are added with Batch.handle
+     */
+    public static Batch batch(String context)
+    {
+        return new Batch(context);
+    }
 
+    /**
+     * Shows reported errors in the given panel. Call on the FX thread.
+     *
+     * @param errorPanel Collapsible panel whose title shows the error count
+     * @param errorLog List inside the panel, one row per aggregated error
+     */
+    public static void attach(TitledPane errorPanel, ListView<String> errorLog)
+    {
+        panel = errorPanel;
+        log = errorLog;
+    }
+
+    // Maps an exception to a message the user can act on
+    private static String describe(Exception e, String context)
+    {
         if (e instanceof FileAlreadyExistsException)
         {
-            message = "A file or directory with that name already exists.";
+            return "A file or directory with that name already exists.";
         }
         else if (e instanceof NoSuchFileException)
         {
-            message = "The file or directory could not be found.";
+            return "The file or directory could not be found.";
         }
         else if (e instanceof AccessDeniedException)
         {
-            message = "Permission denied. You do not have access to this file or directory.";
+            return "Permission denied. You do not have access to this file or directory.";
         }
         else if (e instanceof IOException)
         {
-            message = "An I/O error occurred while " + context + ".";
+            return "An I/O error occurred while " + context + ".";
         }
         else
         {
-            message = "An unexpected error occurred: " + e.getMessage();
+            return "An unexpected error occurred: " + e.getMessage();
         }
+    }
 
-        // Console log
-        System.err.println("Error: " + message);
+    // Queues a report; beyond MAX_PENDING unflushed reports, only a count is kept
+    private static void publish(Report report)
+    {
+        if (pendingCount.incrementAndGet() > MAX_PENDING)
+        {
+            pendingCount.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+        else
+        {
+            pending.add(report);
+        }
+
+        if (started.compareAndSet(false, true))
+        {
+            ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "error-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(ErrorManager::flush, 0, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Aggregates queued reports, logs each changed group once and hands the rows to the panel
+    private static void flush()
+    {
+        Set<Group> changed = new LinkedHashSet<>();
+        Report report;
+        while ((report = pending.poll()) != null)
+        {
+            pendingCount.decrementAndGet();
+            Group group = groups.computeIfAbsent(report.context + '|' + report.type, Group::new);
+            group.add(report);
+            changed.add(group);
+        }
+
+        long lost = dropped.getAndSet(0);
+        if (lost > 0)
+        {
+            Group group = groups.computeIfAbsent("error reporting|Overflow", Group::new);
+            group.add(new Report("error reporting", "Overflow",
+                    "Too many errors at once; some were only counted.", null, lost));
+            changed.add(group);
+        }
+
+        if (changed.isEmpty())
+        {
+            return;
+        }
+
+        Map<String, String> updates = new LinkedHashMap<>();
+        for (Group group : changed)
+        {
+            System.err.println(group.consoleLine());
+            updates.put(group.key, group.row());
+        }
+
+        if (panel != null && log != null)
+        {
+            Platform.runLater(() -> render(updates));
+        }
+    }
 
-        // Popup alert for user
-        Alert alert = new Alert(Alert.AlertType.ERROR);
-        alert.setTitle("Operation Failed");
-        alert.setHeaderText("Error " + context);
-        alert.setContentText(message);
-        alert.showAndWait();
+    // Applies updated rows to the panel, newest first
+    private static void render(Map<String, String> updates)
+    {
+        boolean newGroup = false;
+        for (Map.Entry<String, String> update : updates.entrySet())
+        {
+            newGroup |= rows.remove(update.getKey()) == null;
+            rows.put(update.getKey(), update.getValue());
+        }
+        while (rows.size() > MAX_GROUPS)
+        {
+            rows.remove(rows.keySet().iterator().next());
+        }
+
+        List<String> newestFirst = new ArrayList<>(rows.values());
+        Collections.reverse(newestFirst);
+        log.getItems().setAll(newestFirst);
+
+        panel.setText("Errors (" + rows.size() + ")");
+        if (newGroup)
+        {
+            panel.setExpanded(true);
+        }
+    }
+
+    private static final class Report
+    {
+        final String context;
+        final String type;
+        final String message;
+        final String detail;
+        final long count;
+        final Instant time = Instant.now();
+
+        Report(String context, String type, String message, String detail, long count)
+        {
+            this.context = context;
+            this.type = type;
+            this.message = message;
+            this.detail = detail;
+            this.count = count;
+        }
+    }
+
+    private static final class Group
+    {
+        final String key;
+        String context;
+        String message;
+        String detail;
+        long count;
+        Instant last;
+
+        Group(String key)
+        {
+            this.key = key;
+        }
+
+        void add(Report report)
+        {
+            context = report.context;
+            message = report.message;
+            detail = report.detail;
+            count += report.count;
+            last = report.time;
+        }
+
+        String consoleLine()
+        {
+            return "Error: " + message + (count > 1 ? " (x" + count + " while " + context + ")" : "");
+        }
+
+        String row()
+        {
+            return TIME.format(last) + "  Error " + context + ": " + message
+                    + (count > 1 ? " (x" + count + ")" : "")
+                    + (detail != null ? " - " + detail : "");
+        }
+    }
+
+    /**
+     * Batch - Counts the failures of one bulk operation and reports them as a single summary.
+     */
+    public static final class Batch implements AutoCloseable
+    {
+        private final String context;
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        private final AtomicReference<Exception> first = new AtomicReference<>();
+
+        private Batch(String context)
+        {
+            this.context = context;
+        }
+
+        /**
+         * Records a failure. Safe to call concurrently.
+         *
+         * @param e Exception thrown
+         */
+        public void handle(Exception e)
+        {
+            counts.computeIfAbsent(e.getClass().getSimpleName(), type -> new LongAdder()).increment();
+            first.compareAndSet(null, e);
+        }
+
+        /**
+         * Returns the number of failures recorded so far.
+         *
+         * @return Failure count
+         */
+        public long getFailureCount()
+        {
+            long total = 0;
+            for (LongAdder count : counts.values())
+            {
+                total += count.sum();
+            }
+            return total;
+        }
+
+        /**
+         * Publishes one summary of all recorded failures, if there were any.
+         */
+        @Override
+        public void close()
+        {
+            long total = getFailureCount();
+            if (total == 0)
+            {
+                return;
+            }
+
+            StringJoiner byType = new StringJoiner(", ");
+            counts.forEach((type, count) -> byType.add(count.sum() + " " + type));
+
+            Exception example = first.get();
+            publish(new Report(context, "Batch", total + " operation(s) failed: " + byType + ".",
+                    "first: " + describe(example, context) + " " + example.getMessage(), total));
+        }
     }
 }
@@ -1,7 +1,10 @@
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * FileController - Connects user's actions to FileManager methods.
@@ -11,16 +14,33 @@ import java.util.List;
 public class FileController
 {
     protected final FileManager fileManager;
+    private final ChecksumService checksumService = new ChecksumService();
+    private final IngestService ingestService;
+    private final RenameService renameService;
+    private final DirectoryComparer directoryComparer = new DirectoryComparer(checksumService);
     private Path currentDirectory;
 
     /**
      * Constructs a FileController with starting directory.
      *
-     * @param startDirectory : Initial working directory.
+     * @param startDirectory : Initial working directory; its filesystem is used for all operations.
      */
     public FileController(Path startDirectory)
     {
-        this.fileManager = new FileManager();
+        this(new FileManager(startDirectory.getFileSystem()), startDirectory);
+    }
+
+    /**
+     * Constructs a FileController using the given FileManager.
+     *
+     * @param fileManager    : FileManager (and with it the filesystem) to use.
+     * @param startDirectory : Initial working directory on the FileManager's filesystem.
+     */
+    public FileController(FileManager fileManager, Path startDirectory)
+    {
+        this.fileManager = fileManager;
+        this.ingestService = new IngestService(fileManager);
+        this.renameService = new RenameService(fileManager);
         this.currentDirectory = startDirectory;
 
         // Ensure the starting directory exists
@@ -193,6 +213,186 @@ public class FileController
         }
     }
 
+    /**
+     * Executes a bulk rename plan: every rename happens, or none does. May take a while for
+     * large directories, so call it off the FX thread.
+     *
+     * @param plan : Plan made with RenameService.plan, typically shown to the user first.
+     * @return Number of files renamed.
+     * @throws IOException if a rename failed (everything was rolled back) or an interrupted bulk rename
+     *                     must be rolled back first.
+     */
+    public int bulkRename(RenameService.RenamePlan plan) throws IOException
+    {
+        int renamed = renameService.execute(plan);
+        System.out.println("Bulk renamed " + renamed + " file(s) in: " + plan.getDirectory());
+        return renamed;
+    }
+
+    /**
+     * Checks whether a bulk rename in the current directory was interrupted (e.g. by a crash).
+     *
+     * @return true if rollbackBulkRename() has something to undo.
+     */
+    public boolean hasInterruptedBulkRename()
+    {
+        return RenameService.hasJournal(currentDirectory);
+    }
+
+    /**
+     * Undoes an interrupted bulk rename in the current directory.
+     *
+     * @return Number of renames undone.
+     * @throws IOException if a rename can't be undone.
+     */
+    public int rollbackBulkRename() throws IOException
+    {
+        int undone = renameService.rollback(currentDirectory);
+        System.out.println("Rolled back " + undone + " rename(s) in: " + currentDirectory);
+        return undone;
+    }
+
+    /**
+     * Starts following a file in the current directory, reading only newly appended lines.
+     *
+     * @param fileName : File to follow.
+     * @param listener : Receives each batch of new lines (called from a background thread).
+     * @return The running FileTailer; close it to stop following.
+     */
+    public FileTailer followFile(String fileName, Consumer<List<String>> listener)
+    {
+        try
+        {
+            Path path = currentDirectory.resolve(fileName);
+            FileTailer tailer = new FileTailer(path, FileTailer.DEFAULT_MAX_LINES, listener);
+            tailer.start();
+            System.out.println("Following: " + path);
+            return tailer;
+        }
+        catch (Exception e)
+        {
+            ErrorManager.handle(e, "following file");
+            throw new RuntimeException(e); // rethrow
+        }
+    }
+
+    /**
+     * Computes the checksum of a file in the current directory. May take a while for large
+     * files, so call it off the FX thread.
+     *
+     * @param fileName  : File to hash.
+     * @param algorithm : Checksum algorithm.
+     * @return The checksum as lowercase hex.
+     * @throws IOException if the file can't be read.
+     */
+    public String checksumFile(String fileName, ChecksumAlgorithm algorithm) throws IOException
+    {
+        Path path = currentDirectory.resolve(fileName);
+        String checksum = checksumService.checksum(path, algorithm);
+        System.out.println(algorithm + " " + checksum + "  " + path);
+        return checksum;
+    }
+
+    /**
+     * Hashes a directory tree in the current directory and writes its checksum manifest.
+     *
+     * @param directoryName : Directory to hash.
+     * @param algorithm     : Checksum algorithm.
+     * @return Path of the written manifest.
+     * @throws IOException if hashing or writing fails.
+     */
+    public Path writeChecksumManifest(String directoryName, ChecksumAlgorithm algorithm) throws IOException
+    {
+        Path manifest = checksumService.writeManifest(currentDirectory.resolve(directoryName), algorithm);
+        System.out.println("Checksum manifest written: " + manifest);
+        return manifest;
+    }
+
+    /**
+     * Verifies files against a checksum manifest.
+     *
+     * @param name : A manifest file, or a directory containing one.
+     * @return The verification result.
+     * @throws IOException if no manifest is found or it can't be read.
+     */
+    public ChecksumService.VerifyResult verifyChecksums(String name) throws IOException
+    {
+        Path path = currentDirectory.resolve(name);
+        Path manifest = path;
+        if (Files.isDirectory(path))
+        {
+            manifest = null;
+            for (ChecksumAlgorithm algorithm : ChecksumAlgorithm.values())
+            {
+                Path candidate = path.resolve(ChecksumService.MANIFEST_PREFIX + algorithm.getId());
+                if (Files.exists(candidate))
+                {
+                    manifest = candidate;
+                    break;
+                }
+            }
+            if (manifest == null)
+            {
+                throw new NoSuchFileException("No checksum manifest in: " + path);
+            }
+        }
+
+        ChecksumService.VerifyResult result = checksumService.verify(manifest);
+        System.out.println(result.summary() + " (" + manifest + ")");
+        return result;
+    }
+
+    /**
+     * Compares two directory trees by size and modification time. May take a while for large
+     * trees, so call it off the FX thread.
+     *
+     * @param leftName  : Left directory, relative to the current directory or absolute.
+     * @param rightName : Right directory, relative to the current directory or absolute.
+     * @param sink      : Receives every compared entry as it is found (called from background threads).
+     * @param cancelled : Stops the comparison early once it returns true.
+     * @return Counts per status.
+     * @throws IOException if either directory can't be listed.
+     */
+    public DirectoryComparer.CompareResult compareDirectories(String leftName, String rightName,
+                                                              Consumer<DirectoryComparer.Entry> sink,
+                                                              BooleanSupplier cancelled) throws IOException
+    {
+        DirectoryComparer.CompareResult result = directoryComparer.compare(
+                currentDirectory.resolve(leftName).normalize(), currentDirectory.resolve(rightName).normalize(),
+                sink, cancelled);
+        System.out.println(result.summary());
+        return result;
+    }
+
+    /**
+     * Compares the contents of a file pair found by compareDirectories.
+     *
+     * @param entry : Entry with a file on both sides.
+     * @return The entry, reclassified by content.
+     * @throws IOException if either file can't be read.
+     */
+    public DirectoryComparer.Entry checkContent(DirectoryComparer.Entry entry) throws IOException
+    {
+        return directoryComparer.checkContent(entry);
+    }
+
+    /**
+     * Creates the files listed in a manifest, or contained in a ZIP archive, in a directory of
+     * the current directory, and syncs them to disk. May take a while, so call it off the FX thread.
+     *
+     * @param sourceName          : Manifest or ".zip" archive in the current directory.
+     * @param targetDirectoryName : Directory to import into; created if missing.
+     * @return Counts of what was imported; individual failures are reported through ErrorManager.
+     * @throws IOException if the source can't be read or the target directory can't be created.
+     */
+    public IngestService.IngestResult importFiles(String sourceName, String targetDirectoryName) throws IOException
+    {
+        IngestService.IngestResult result = ingestService.ingest(currentDirectory.resolve(sourceName),
+                currentDirectory.resolve(targetDirectoryName), true);
+        System.out.println(result.summary());
+        return result;
+    }
+
     /**
      * Changes the current working directory.
      *
@@ -207,7 +407,7 @@ public class FileController
                 path = currentDirectory.resolve(path);
             }
 
-            if (!path.toFile().isDirectory())
+            if (!Files.isDirectory(path))
             {
                 throw new IOException("Not a directory: " + path);
             }
@@ -223,6 +423,16 @@ public class FileController
     }
 
 
+    /**
+     * Returns the FileManager used for file operations.
+     *
+     * @return The FileManager.
+     */
+    public FileManager getFileManager()
+    {
+        return fileManager;
+    }
+
     /**
      * Returns current working directory.
      *
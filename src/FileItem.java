@@ -1,5 +1,6 @@
 import java.io.IOException;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 
 /**
@@ -20,12 +21,24 @@ public class FileItem
      * @throws IOException if file attributes cannot be read.
      */
     public FileItem(Path path) throws IOException
+    {
+        // One attribute read instead of separate isDirectory/size/lastModified calls
+        this(path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+    /**
+     * Constructs a FileItem from attributes that were already read (e.g. during a tree walk).
+     *
+     * @param path The file or directory path.
+     * @param attrs The attributes of that path.
+     */
+    public FileItem(Path path, BasicFileAttributes attrs)
     {
         this.path = path;
         this.name = path.getFileName().toString();
-        this.isDirectory = Files.isDirectory(path);
-        this.size = isDirectory ? 0L : Files.size(path);
-        this.lastModified = Files.getLastModifiedTime(path).toInstant();
+        this.isDirectory = attrs.isDirectory();
+        this.size = isDirectory ? 0L : attrs.size();
+        this.lastModified = attrs.lastModifiedTime().toInstant();
     }
 
     public Path getPath()
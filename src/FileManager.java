@@ -1,4 +1,9 @@
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -8,9 +13,54 @@ import java.util.List;
 /**
  * FileManager - Core class for performing file and directory operations.
  * Supports Create, Read, Update, Delete, and Rename operations.
+ *
+ * Works on any java.nio.file.FileSystem: the default (disk) filesystem or e.g. a MemoryFileSystem.
  */
 public class FileManager
 {
+    private static final BufferPool BUFFERS = new BufferPool(64 * 1024, 32);
+
+    private final FileSystem fileSystem;
+
+    /**
+     * Constructs a FileManager for the default filesystem.
+     */
+    public FileManager()
+    {
+        this(FileSystems.getDefault());
+    }
+
+    /**
+     * Constructs a FileManager for the given filesystem.
+     *
+     * @param fileSystem The filesystem all paths must belong to.
+     */
+    public FileManager(FileSystem fileSystem)
+    {
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Returns the filesystem this FileManager works on.
+     *
+     * @return The filesystem.
+     */
+    public FileSystem getFileSystem()
+    {
+        return fileSystem;
+    }
+
+    /**
+     * Converts a path string to a Path on this FileManager's filesystem.
+     *
+     * @param first The path string or initial part of it.
+     * @param more Additional parts joined to form the path.
+     * @return The resulting Path.
+     */
+    public Path getPath(String first, String... more)
+    {
+        return fileSystem.getPath(first, more);
+    }
 
     /**
      * Lists all the files and directories within a given directory path.
@@ -21,11 +71,10 @@ public class FileManager
      */
     public List<FileItem> listDirectory(Path directory) throws IOException
     {
+        checkPath(directory);
         List<FileItem> items = new ArrayList<>();
-        if (!Files.exists(directory))
-        {
-            throw new NoSuchFileException("Directory doesn't exist: " + directory);
-        }
+
+        // Opening the stream already fails with NoSuchFileException / NotDirectoryException
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory))
         {
             for (Path path : stream)
@@ -45,16 +94,44 @@ public class FileManager
      */
     public void createFile(Path path, String content) throws IOException
     {
-        if (Files.exists(path))
-        {
-            throw new FileAlreadyExistsException("File already exists: " + path);
-        }
+        checkPath(path);
 
+        // CREATE_NEW fails atomically with FileAlreadyExistsException; no separate exists() check
         Files.write(path,
                 content == null ? new byte[0] : content.getBytes(StandardCharsets.UTF_8),
                 StandardOpenOption.CREATE_NEW);
     }
 
+    /**
+     * Creates a new file with the data read from a channel, without holding it all in memory.
+     *
+     * @param path The file path.
+     * @param source Channel to read the content from, until end of stream. Not closed.
+     * @return The number of bytes written.
+     * @throws IOException if the file already exists or reading/writing fails.
+     */
+    public long createFile(Path path, ReadableByteChannel source) throws IOException
+    {
+        checkPath(path);
+        try (FileChannel target = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW))
+        {
+            return copy(source, target);
+        }
+    }
+
+    /**
+     * Creates a new file with the data read from a stream, without holding it all in memory.
+     *
+     * @param path The file path.
+     * @param source Stream to read the content from, until end of stream. Not closed.
+     * @return The number of bytes written.
+     * @throws IOException if the file already exists or reading/writing fails.
+     */
+    public long createFile(Path path, InputStream source) throws IOException
+    {
+        return createFile(path, Channels.newChannel(source));
+    }
+
     /**
      * Creates a new directory.
      *
@@ -63,11 +140,7 @@ public class FileManager
      */
     public void createDirectory(Path path) throws IOException
     {
-        if (Files.exists(path))
-        {
-            throw new FileAlreadyExistsException("Directory already exists: " + path);
-        }
-
+        checkPath(path);
         Files.createDirectory(path);
     }
 
@@ -80,11 +153,7 @@ public class FileManager
      */
     public String readFile(Path path) throws IOException
     {
-        if (!Files.exists(path))
-        {
-            throw new NoSuchFileException("File not found: " + path);
-        }
-
+        checkPath(path);
         return Files.readString(path, StandardCharsets.UTF_8);
     }
 
@@ -93,21 +162,45 @@ public class FileManager
      *
      * @param path The file path.
      * @param content New content to write to the file.
-     * @throws IOException if the file can't be written to.
+     * @throws IOException if the file doesn't exist (NoSuchFileException) or can't be written to.
      */
     public void updateFile(Path path, String content) throws IOException
     {
-        if (!Files.exists(path))
-        {
-            throw new NoSuchFileException("File not found: " + path);
-        }
+        checkPath(path);
 
-        if (!Files.isWritable(path))
+        // Without CREATE the open itself reports a missing (or read-only) file
+        Files.writeString(path, content, StandardCharsets.UTF_8,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Overwrites an existing file with the data read from a channel.
+     *
+     * @param path The file path.
+     * @param source Channel to read the new content from, until end of stream. Not closed.
+     * @return The number of bytes written.
+     * @throws IOException if the file doesn't exist (NoSuchFileException) or reading/writing fails.
+     */
+    public long updateFile(Path path, ReadableByteChannel source) throws IOException
+    {
+        checkPath(path);
+        try (FileChannel target = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
         {
-            throw new AccessDeniedException("Permission denied: " + path);
+            return copy(source, target);
         }
+    }
 
-        Files.writeString(path, content, StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING);
+    /**
+     * Overwrites an existing file with the data read from a stream.
+     *
+     * @param path The file path.
+     * @param source Stream to read the new content from, until end of stream. Not closed.
+     * @return The number of bytes written.
+     * @throws IOException if the file doesn't exist (NoSuchFileException) or reading/writing fails.
+     */
+    public long updateFile(Path path, InputStream source) throws IOException
+    {
+        return updateFile(path, Channels.newChannel(source));
     }
 
     /**
@@ -119,16 +212,10 @@ public class FileManager
      */
     public void rename(Path oldPath, Path newPath) throws IOException
     {
-        if (!Files.exists(oldPath))
-        {
-            throw new NoSuchFileException("File not found: " + oldPath);
-        }
-
-        if (Files.exists(newPath))
-        {
-            throw new FileAlreadyExistsException("File already exists: " + newPath);
-        }
+        checkPath(oldPath);
+        checkPath(newPath);
 
+        // Without REPLACE_EXISTING, move reports a missing source or an existing target itself
         Files.move(oldPath, newPath);
     }
 
@@ -140,33 +227,92 @@ public class FileManager
      */
     public void delete(Path path) throws IOException
     {
-        if (!Files.exists(path))
+        checkPath(path);
+
+        // Files and empty directories go in one call; only a non-empty directory needs a walk
+        try
         {
-            throw new NoSuchFileException("File or Directory not found: " + path);
+            Files.delete(path);
         }
-
-        if (Files.isDirectory(path))
+        catch (DirectoryNotEmptyException e)
         {
             Files.walkFileTree(path, new SimpleFileVisitor<>()
             {
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
                 {
-                    Files.deleteIfExists(file);
+                    Files.delete(file);
                     return FileVisitResult.CONTINUE;
                 }
 
                 @Override
                 public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException
                 {
-                    Files.deleteIfExists(dir);
+                    if (e != null)
+                    {
+                        throw e;
+                    }
+                    Files.delete(dir);
                     return FileVisitResult.CONTINUE;
                 }
             });
         }
+    }
+
+    // Copies source into an empty target. File sources use transferFrom so the OS copies the data
+    // directly; other sources go through a pooled direct buffer that is only written out when full.
+    private static long copy(ReadableByteChannel source, FileChannel target) throws IOException
+    {
+        long written = 0;
+        if (source instanceof FileChannel)
+        {
+            long n;
+            while ((n = target.transferFrom(source, written, Long.MAX_VALUE)) > 0)
+            {
+                written += n;
+            }
+        }
         else
         {
-            Files.delete(path);
+            ByteBuffer buffer = BUFFERS.acquire();
+            try
+            {
+                while (source.read(buffer) >= 0)
+                {
+                    if (!buffer.hasRemaining())
+                    {
+                        written += drain(buffer, target, written);
+                    }
+                }
+                written += drain(buffer, target, written);
+            }
+            finally
+            {
+                BUFFERS.release(buffer);
+            }
+        }
+        return written;
+    }
+
+    // Writes the buffered bytes at the given position and clears the buffer
+    private static int drain(ByteBuffer buffer, FileChannel target, long position) throws IOException
+    {
+        buffer.flip();
+        int count = buffer.remaining();
+        while (buffer.hasRemaining())
+        {
+            target.write(buffer, position + count - buffer.remaining());
+        }
+        buffer.clear();
+        return count;
+    }
+
+    // Paths from another filesystem would silently bypass the configured backend
+    private void checkPath(Path path)
+    {
+        if (path.getFileSystem() != fileSystem)
+        {
+            throw new ProviderMismatchException("Path is not on this FileManager's filesystem: " + path);
         }
     }
 }
@@ -0,0 +1,160 @@
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FileSystemCallBudget - Regression check for the number of filesystem calls per operation.
+ *
+ * Runs each FileManager operation against a CountingFileSystemProvider and compares the number
+ * of provider calls it made with a fixed budget. Exits with status 1 when an operation goes over
+ * budget, so a change that reintroduces redundant exists()/stat calls fails the check.
+ *
+ * Usage: java FileSystemCallBudget
+ */
+public class FileSystemCallBudget
+{
+    private interface Step
+    {
+        void run(FileManager fileManager, Path directory) throws IOException;
+    }
+
+    private static final class Scenario
+    {
+        final String name;
+        final long budget;
+        final Step setup;
+        final Step operation;
+        final Class<? extends IOException> expected;
+
+        Scenario(String name, long budget, Step setup, Step operation, Class<? extends IOException> expected)
+        {
+            this.name = name;
+            this.budget = budget;
+            this.setup = setup;
+            this.operation = operation;
+            this.expected = expected;
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        List<Scenario> scenarios = scenarios();
+        CountingFileSystemProvider provider = new CountingFileSystemProvider();
+        int failures = 0;
+
+        System.out.printf("%-32s %6s %6s  %s%n", "operation", "calls", "budget", "breakdown");
+        for (int i = 0; i < scenarios.size(); i++)
+        {
+            Scenario scenario = scenarios.get(i);
+            try (FileSystem fileSystem = provider.newFileSystem(URI.create("memory://budget-" + i), Map.of()))
+            {
+                FileManager fileManager = new FileManager(fileSystem);
+                Path directory = fileSystem.getPath("/work");
+                Files.createDirectory(directory);
+                scenario.setup.run(fileManager, directory);
+
+                provider.reset();
+                String outcome = run(scenario, fileManager, directory);
+                long calls = provider.getTotal();
+
+                boolean ok = outcome == null && calls <= scenario.budget;
+                if (!ok)
+                {
+                    failures++;
+                }
+                System.out.printf("%-32s %6d %6d  %s%s%n", scenario.name, calls, scenario.budget,
+                        provider.getCounts(), ok ? "" : outcome != null ? "  FAILED: " + outcome : "  OVER BUDGET");
+            }
+        }
+
+        if (failures > 0)
+        {
+            System.out.println(failures + " operation(s) failed the filesystem call budget.");
+            System.exit(1);
+        }
+        System.out.println("All operations within budget.");
+    }
+
+    // Runs the operation; returns null if it behaved as expected, else a description of what went wrong
+    private static String run(Scenario scenario, FileManager fileManager, Path directory)
+    {
+        try
+        {
+            scenario.operation.run(fileManager, directory);
+            return scenario.expected == null ? null : "expected " + scenario.expected.getSimpleName();
+        }
+        catch (IOException e)
+        {
+            return scenario.expected != null && scenario.expected.isInstance(e) ? null : "unexpected " + e;
+        }
+    }
+
+    private static List<Scenario> scenarios()
+    {
+        Step none = (fm, dir) -> { };
+        Step oneFile = (fm, dir) -> fm.createFile(dir.resolve("a.txt"), "hello");
+        Step tenEntries = (fm, dir) ->
+        {
+            for (int i = 0; i < 5; i++)
+            {
+                fm.createFile(dir.resolve("file" + i), "x");
+                fm.createDirectory(dir.resolve("dir" + i));
+            }
+        };
+        Step smallTree = (fm, dir) ->
+        {
+            // tree/{a,b}/{1,2,3}: 3 directories, 6 files
+            fm.createDirectory(dir.resolve("tree"));
+            for (String sub : new String[] { "a", "b" })
+            {
+                fm.createDirectory(dir.resolve("tree").resolve(sub));
+                for (int i = 1; i <= 3; i++)
+                {
+                    fm.createFile(dir.resolve("tree").resolve(sub).resolve(String.valueOf(i)), "x");
+                }
+            }
+        };
+
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("createFile", 1, none,
+                (fm, dir) -> fm.createFile(dir.resolve("a.txt"), "hello"), null));
+        scenarios.add(new Scenario("createFile (exists)", 1, oneFile,
+                (fm, dir) -> fm.createFile(dir.resolve("a.txt"), "again"), FileAlreadyExistsException.class));
+        scenarios.add(new Scenario("createDirectory", 1, none,
+                (fm, dir) -> fm.createDirectory(dir.resolve("sub")), null));
+        scenarios.add(new Scenario("readFile", 1, oneFile,
+                (fm, dir) -> fm.readFile(dir.resolve("a.txt")), null));
+        scenarios.add(new Scenario("readFile (missing)", 1, none,
+                (fm, dir) -> fm.readFile(dir.resolve("a.txt")), NoSuchFileException.class));
+        scenarios.add(new Scenario("updateFile", 1, oneFile,
+                (fm, dir) -> fm.updateFile(dir.resolve("a.txt"), "updated"), null));
+        scenarios.add(new Scenario("updateFile (missing)", 1, none,
+                (fm, dir) -> fm.updateFile(dir.resolve("a.txt"), "updated"), NoSuchFileException.class));
+        scenarios.add(new Scenario("rename", 1, oneFile,
+                (fm, dir) -> fm.rename(dir.resolve("a.txt"), dir.resolve("b.txt")), null));
+        scenarios.add(new Scenario("rename (target exists)", 1,
+                (fm, dir) ->
+                {
+                    oneFile.run(fm, dir);
+                    fm.createFile(dir.resolve("b.txt"), "");
+                },
+                (fm, dir) -> fm.rename(dir.resolve("a.txt"), dir.resolve("b.txt")), FileAlreadyExistsException.class));
+        scenarios.add(new Scenario("delete file", 1, oneFile,
+                (fm, dir) -> fm.delete(dir.resolve("a.txt")), null));
+        scenarios.add(new Scenario("delete empty directory", 1,
+                (fm, dir) -> fm.createDirectory(dir.resolve("sub")),
+                (fm, dir) -> fm.delete(dir.resolve("sub")), null));
+        scenarios.add(new Scenario("delete tree (3 dirs, 6 files)", 22, smallTree,
+                (fm, dir) -> fm.delete(dir.resolve("tree")), null));
+        scenarios.add(new Scenario("listDirectory (10 entries)", 11, tenEntries,
+                (fm, dir) -> fm.listDirectory(dir), null));
+        return scenarios;
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * FileSystemParity - Check that the in-memory filesystem behaves like the disk.
+ *
+ * Runs the same FileManager operations against a temporary directory on the default filesystem
+ * and against a MemoryFileSystem, then compares what each operation returned (or which exception
+ * it threw) and what the working directory looks like afterwards. Exits with status 1 when the
+ * two backends disagree, so a change to MemoryFileSystem that drifts from the disk fails the check.
+ *
+ * Usage: java FileSystemParity
+ */
+public class FileSystemParity
+{
+    private interface Step
+    {
+        void run(FileManager fileManager, Path directory) throws IOException;
+    }
+
+    private interface Operation
+    {
+        Object run(FileManager fileManager, Path directory) throws IOException;
+    }
+
+    private static final class Scenario
+    {
+        final String name;
+        final Step setup;
+        final Operation operation;
+
+        Scenario(String name, Step setup, Operation operation)
+        {
+            this.name = name;
+            this.setup = setup;
+            this.operation = operation;
+        }
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        List<Scenario> scenarios = scenarios();
+        Path diskRoot = Files.createTempDirectory("parity");
+        FileManager disk = new FileManager(FileSystems.getDefault());
+        int mismatches = 0;
+
+        System.out.printf("%-32s %-28s %-28s%n", "operation", "disk", "memory");
+        try (MemoryFileSystem memoryFileSystem = MemoryFileSystem.create("parity"))
+        {
+            FileManager memory = new FileManager(memoryFileSystem);
+            for (int i = 0; i < scenarios.size(); i++)
+            {
+                Scenario scenario = scenarios.get(i);
+                String onDisk = run(scenario, disk, diskRoot.resolve("work-" + i));
+                String inMemory = run(scenario, memory, memoryFileSystem.getPath("/work-" + i));
+
+                boolean same = onDisk.equals(inMemory);
+                if (!same)
+                {
+                    mismatches++;
+                }
+                System.out.printf("%-32s %-28s %-28s%s%n", scenario.name, firstLine(onDisk), firstLine(inMemory),
+                        same ? "" : "  MISMATCH");
+                if (!same)
+                {
+                    System.out.println("  disk:   " + onDisk.replace("\n", "\n          "));
+                    System.out.println("  memory: " + inMemory.replace("\n", "\n          "));
+                }
+            }
+        }
+        finally
+        {
+            disk.delete(diskRoot);
+        }
+
+        if (mismatches > 0)
+        {
+            System.out.println(mismatches + " operation(s) behave differently in memory than on disk.");
+            System.exit(1);
+        }
+        System.out.println("Both filesystems behave the same.");
+    }
+
+    // Runs one scenario in a fresh directory; returns the outcome followed by the directory contents
+    private static String run(Scenario scenario, FileManager fileManager, Path directory) throws IOException
+    {
+        fileManager.createDirectory(directory);
+        scenario.setup.run(fileManager, directory);
+
+        String outcome;
+        try
+        {
+            Object result = scenario.operation.run(fileManager, directory);
+            outcome = result == null ? "ok" : "ok: " + result;
+        }
+        catch (IOException e)
+        {
+            outcome = e.getClass().getSimpleName();
+        }
+
+        StringBuilder state = new StringBuilder(outcome);
+        snapshot(fileManager, directory, "", state);
+        return state.toString();
+    }
+
+    // Appends every entry below a directory, sorted by name, with its size and content (hashed if long)
+    private static void snapshot(FileManager fileManager, Path directory, String prefix, StringBuilder state)
+            throws IOException
+    {
+        List<FileItem> items = new ArrayList<>(fileManager.listDirectory(directory));
+        items.sort(Comparator.comparing(FileItem::getName));
+        for (FileItem item : items)
+        {
+            if (item.isDirectory())
+            {
+                state.append('\n').append(prefix).append(item.getName()).append('/');
+                snapshot(fileManager, item.getPath(), prefix + item.getName() + "/", state);
+            }
+            else
+            {
+                String content = fileManager.readFile(item.getPath());
+                state.append('\n').append(prefix).append(item.getName()).append(" (").append(item.getSize())
+                        .append(" bytes) ").append(content.length() <= 40 ? content : "#" + content.hashCode());
+            }
+        }
+    }
+
+    private static String firstLine(String text)
+    {
+        int end = text.indexOf('\n');
+        return end < 0 ? text : text.substring(0, end);
+    }
+
+    private static List<Scenario> scenarios()
+    {
+        Step none = (fm, dir) -> { };
+        Step oneFile = (fm, dir) -> fm.createFile(dir.resolve("a.txt"), "hello");
+        Step smallTree = (fm, dir) ->
+        {
+            fm.createDirectory(dir.resolve("tree"));
+            for (String sub : new String[] { "a", "b" })
+            {
+                fm.createDirectory(dir.resolve("tree").resolve(sub));
+                for (int i = 1; i <= 3; i++)
+                {
+                    fm.createFile(dir.resolve("tree").resolve(sub).resolve(String.valueOf(i)), "x" + i);
+                }
+            }
+        };
+        byte[] large = TreeGenerator.content(100_000).getBytes(StandardCharsets.UTF_8);
+
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("createFile", none,
+                (fm, dir) ->
+                {
+                    fm.createFile(dir.resolve("a.txt"), "hello");
+                    return null;
+                }));
+        scenarios.add(new Scenario("createFile (exists)", oneFile,
+                (fm, dir) ->
+                {
+                    fm.createFile(dir.resolve("a.txt"), "again");
+                    return null;
+                }));
+        scenarios.add(new Scenario("createFile (missing parent)", none,
+                (fm, dir) ->
+                {
+                    fm.createFile(dir.resolve("missing").resolve("a.txt"), "hello");
+                    return null;
+                }));
+        scenarios.add(new Scenario("createFile (stream)", none,
+                (fm, dir) -> fm.createFile(dir.resolve("big.txt"), new ByteArrayInputStream(large))));
+        scenarios.add(new Scenario("createDirectory", none,
+                (fm, dir) ->
+                {
+                    fm.createDirectory(dir.resolve("sub"));
+                    return null;
+                }));
+        scenarios.add(new Scenario("createDirectory (exists)", oneFile,
+                (fm, dir) ->
+                {
+                    fm.createDirectory(dir.resolve("a.txt"));
+                    return null;
+                }));
+        scenarios.add(new Scenario("readFile", oneFile,
+                (fm, dir) -> fm.readFile(dir.resolve("a.txt"))));
+        scenarios.add(new Scenario("readFile (missing)", none,
+                (fm, dir) -> fm.readFile(dir.resolve("a.txt"))));
+        scenarios.add(new Scenario("readFile (directory)", smallTree,
+                (fm, dir) -> fm.readFile(dir.resolve("tree"))));
+        scenarios.add(new Scenario("updateFile", oneFile,
+                (fm, dir) ->
+                {
+                    fm.updateFile(dir.resolve("a.txt"), "hi");
+                    return null;
+                }));
+        scenarios.add(new Scenario("updateFile (missing)", none,
+                (fm, dir) ->
+                {
+                    fm.updateFile(dir.resolve("a.txt"), "updated");
+                    return null;
+                }));
+        scenarios.add(new Scenario("updateFile (directory)", smallTree,
+                (fm, dir) ->
+                {
+                    fm.updateFile(dir.resolve("tree"), "updated");
+                    return null;
+                }));
+        scenarios.add(new Scenario("updateFile (stream)", oneFile,
+                (fm, dir) -> fm.updateFile(dir.resolve("a.txt"), new ByteArrayInputStream(large))));
+        scenarios.add(new Scenario("rename", oneFile,
+                (fm, dir) ->
+                {
+                    fm.rename(dir.resolve("a.txt"), dir.resolve("b.txt"));
+                    return null;
+                }));
+        scenarios.add(new Scenario("rename (target exists)",
+                (fm, dir) ->
+                {
+                    oneFile.run(fm, dir);
+                    fm.createFile(dir.resolve("b.txt"), "");
+                },
+                (fm, dir) ->
+                {
+                    fm.rename(dir.resolve("a.txt"), dir.resolve("b.txt"));
+                    return null;
+                }));
+        scenarios.add(new Scenario("rename (missing)", none,
+                (fm, dir) ->
+                {
+                    fm.rename(dir.resolve("a.txt"), dir.resolve("b.txt"));
+                    return null;
+                }));
+        scenarios.add(new Scenario("rename directory", smallTree,
+                (fm, dir) ->
+                {
+                    fm.rename(dir.resolve("tree"), dir.resolve("moved"));
+                    return null;
+                }));
+        scenarios.add(new Scenario("listDirectory", smallTree,
+                (fm, dir) -> fm.listDirectory(dir.resolve("tree")).size()));
+        scenarios.add(new Scenario("listDirectory (file)", oneFile,
+                (fm, dir) -> fm.listDirectory(dir.resolve("a.txt")).size()));
+        scenarios.add(new Scenario("listDirectory (missing)", none,
+                (fm, dir) -> fm.listDirectory(dir.resolve("missing")).size()));
+        scenarios.add(new Scenario("delete file", oneFile,
+                (fm, dir) ->
+                {
+                    fm.delete(dir.resolve("a.txt"));
+                    return null;
+                }));
+        scenarios.add(new Scenario("delete tree", smallTree,
+                (fm, dir) ->
+                {
+                    fm.delete(dir.resolve("tree"));
+                    return null;
+                }));
+        scenarios.add(new Scenario("delete (missing)", none,
+                (fm, dir) ->
+                {
+                    fm.delete(dir.resolve("a.txt"));
+                    return null;
+                }));
+        return scenarios;
+    }
+}
@@ -0,0 +1,431 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * FileTailer - Follows a growing (log) file and reads only the bytes appended since the last read.
+ *
+ * Changes are picked up through a WatchService on the parent directory, with a polling
+ * fallback when the filesystem does not deliver events. Truncation and rotation restart
+ * reading from the beginning of the file; a file that was truncated and has already grown past
+ * the old offset again is recognised because the bytes just before the offset changed. Only the
+ * most recent lines are kept in memory.
+ */
+public class FileTailer implements Closeable
+{
+    public static final int DEFAULT_MAX_LINES = 5_000;
+
+    private static final long POLL_INTERVAL_MS = 500;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long INITIAL_TAIL_BYTES = 64 * 1024;
+
+    // Longer lines (or files without any newline) are split, so the partial line can't grow without bound
+    private static final int MAX_LINE_LENGTH = 16 * 1024;
+
+    // Bytes before the offset compared after every modification, to tell appends from rewrites
+    private static final int TAIL_CHECK_BYTES = 64;
+
+    private static final long CLOSE_TIMEOUT_MS = 2_000;
+
+    private final Path path;
+    private final int maxLines;
+    private final Consumer<List<String>> listener;
+
+    private final ArrayDeque<String> lines = new ArrayDeque<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final CharBuffer charBuffer = CharBuffer.allocate(READ_BUFFER_SIZE);
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder partialLine = new StringBuilder();
+    private final ByteBuffer tail = ByteBuffer.allocate(TAIL_CHECK_BYTES);
+    private final ByteBuffer tailCheck = ByteBuffer.allocate(TAIL_CHECK_BYTES);
+
+    private long offset;
+    private Object fileKey;
+    private FileTime creationTime;
+    private FileTime lastModified;
+    private boolean skipFirstLine;
+
+    private Thread worker;
+    private volatile boolean running;
+
+    /**
+     * Constructs a FileTailer for the given file.
+     *
+     * @param path     The file to follow.
+     * @param maxLines Maximum number of lines kept in the in-memory buffer.
+     * @param listener Called from the tailer thread with each batch of newly completed lines.
+     */
+    public FileTailer(Path path, int maxLines, Consumer<List<String>> listener)
+    {
+        if (maxLines <= 0)
+        {
+            throw new IllegalArgumentException("maxLines must be positive: " + maxLines);
+        }
+
+        this.path = path;
+        this.maxLines = maxLines;
+        this.listener = listener;
+    }
+
+    /**
+     * Reads the end of the file and starts following it on a background thread.
+     *
+     * @throws IOException if the file can't be read.
+     */
+    public synchronized void start() throws IOException
+    {
+        if (running)
+        {
+            return;
+        }
+
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        remember(attrs);
+
+        // Like tail(1), start near the end instead of replaying the whole file
+        offset = Math.max(0L, attrs.size() - INITIAL_TAIL_BYTES);
+        skipFirstLine = offset > 0;
+        readAppended();
+
+        running = true;
+        worker = new Thread(this::run, "tail-" + path.getFileName());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Returns a copy of the lines currently held in the buffer, oldest first.
+     *
+     * @return The buffered lines.
+     */
+    public synchronized List<String> snapshot()
+    {
+        return new ArrayList<>(lines);
+    }
+
+    /**
+     * Returns the file being followed.
+     *
+     * @return Path of the followed file.
+     */
+    public Path getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Stops following the file and waits (briefly) for the background thread to finish, so the
+     * listener is not called any more once this returns.
+     */
+    @Override
+    public void close()
+    {
+        running = false;
+        Thread t = worker;
+        if (t == null || t == Thread.currentThread())
+        {
+            return;
+        }
+
+        t.interrupt();
+        try
+        {
+            t.join(CLOSE_TIMEOUT_MS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Waits for changes (events or poll timeout) and reads whatever was appended
+    private void run()
+    {
+        WatchService watcher = openWatcher();
+        try
+        {
+            while (running)
+            {
+                if (watcher != null)
+                {
+                    WatchKey key = watcher.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (key != null)
+                    {
+                        // Events only wake us up; the size/identity check below decides what to read
+                        key.pollEvents();
+                        key.reset();
+                    }
+                }
+                else
+                {
+                    Thread.sleep(POLL_INTERVAL_MS);
+                }
+
+                try
+                {
+                    checkForChanges();
+                }
+                catch (NoSuchFileException e)
+                {
+                    // Rotated away and not recreated yet; keep waiting
+                }
+                catch (IOException e)
+                {
+                    ErrorManager.handle(e, "following file");
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            if (watcher != null)
+            {
+                try
+                {
+                    watcher.close();
+                }
+                catch (IOException ignored)
+                {
+                    // Nothing left to release
+                }
+            }
+        }
+    }
+
+    // Registers the parent directory with a WatchService, or returns null to fall back to polling
+    private WatchService openWatcher()
+    {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent == null)
+        {
+            return null;
+        }
+
+        WatchService watcher = null;
+        try
+        {
+            watcher = path.getFileSystem().newWatchService();
+            parent.register(watcher,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            return watcher;
+        }
+        catch (IOException | UnsupportedOperationException e)
+        {
+            if (watcher != null)
+            {
+                try
+                {
+                    watcher.close();
+                }
+                catch (IOException ignored)
+                {
+                    // Falling back to polling either way
+                }
+            }
+            return null;
+        }
+    }
+
+    // Detects truncation or rotation, then reads any new bytes
+    private synchronized void checkForChanges() throws IOException
+    {
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+
+        boolean rotated = !sameFile(attrs);
+        boolean modified = !attrs.lastModifiedTime().equals(lastModified);
+        if (rotated || attrs.size() < offset || (modified && !tailUnchanged()))
+        {
+            restart(rotated ? "rotated" : "truncated");
+            remember(attrs);
+        }
+        lastModified = attrs.lastModifiedTime();
+
+        if (attrs.size() > offset)
+        {
+            readAppended();
+        }
+    }
+
+    // Reads from the remembered offset to the current end of file
+    private void readAppended() throws IOException
+    {
+        List<String> added = new ArrayList<>();
+
+        try (SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ))
+        {
+            channel.position(offset);
+            int n;
+            while ((n = channel.read(readBuffer)) > 0)
+            {
+                offset += n;
+                readBuffer.flip();
+                decode(added, false);
+                readBuffer.compact();
+            }
+            readTail(channel, tail);
+        }
+
+        publish(added);
+    }
+
+    // True if the bytes just before the offset are still the ones read last time (i.e. the file was only appended to)
+    private boolean tailUnchanged() throws IOException
+    {
+        if (!tail.hasRemaining())
+        {
+            return true;
+        }
+
+        try (SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ))
+        {
+            readTail(channel, tailCheck);
+        }
+        return tailCheck.equals(tail);
+    }
+
+    // Reads the bytes just before the offset into the buffer, ready to be compared
+    private void readTail(SeekableByteChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.clear();
+        buffer.limit((int) Math.min(TAIL_CHECK_BYTES, offset));
+        channel.position(offset - buffer.limit());
+        while (buffer.hasRemaining())
+        {
+            // Stops short only if the file shrank meanwhile, which then fails the comparison
+            if (channel.read(buffer) <= 0)
+            {
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    // Decodes the read buffer, splitting complete lines off into the given list
+    private void decode(List<String> added, boolean endOfInput)
+    {
+        while (true)
+        {
+            boolean overflow = decoder.decode(readBuffer, charBuffer, endOfInput).isOverflow();
+            charBuffer.flip();
+            while (charBuffer.hasRemaining())
+            {
+                char c = charBuffer.get();
+                if (c == '\n')
+                {
+                    int end = partialLine.length();
+                    if (end > 0 && partialLine.charAt(end - 1) == '\r')
+                    {
+                        partialLine.setLength(end - 1);
+                    }
+
+                    if (skipFirstLine)
+                    {
+                        // The initial tail offset usually lands mid-line
+                        skipFirstLine = false;
+                    }
+                    else
+                    {
+                        added.add(partialLine.toString());
+                    }
+                    partialLine.setLength(0);
+                }
+                else
+                {
+                    partialLine.append(c);
+                    if (partialLine.length() >= MAX_LINE_LENGTH)
+                    {
+                        if (!skipFirstLine)
+                        {
+                            added.add(partialLine + " [line truncated]");
+                        }
+                        skipFirstLine = false;
+                        partialLine.setLength(0);
+                    }
+                }
+            }
+            charBuffer.clear();
+
+            if (!overflow)
+            {
+                return;
+            }
+        }
+    }
+
+    // Adds lines to the bounded buffer and notifies the listener
+    private void publish(List<String> added)
+    {
+        if (added.isEmpty())
+        {
+            return;
+        }
+
+        for (String line : added)
+        {
+            if (lines.size() == maxLines)
+            {
+                lines.removeFirst();
+            }
+            lines.addLast(line);
+        }
+
+        // Only the newest maxLines lines are worth handing on
+        if (added.size() > maxLines)
+        {
+            added = added.subList(added.size() - maxLines, added.size());
+        }
+        listener.accept(added);
+    }
+
+    // Starts over from the beginning of a file that was truncated or replaced
+    private void restart(String reason)
+    {
+        offset = 0;
+        tail.clear().flip();
+        skipFirstLine = false;
+        partialLine.setLength(0);
+        readBuffer.clear();
+        decoder.reset();
+        publish(List.of("--- " + path.getFileName() + " " + reason + " ---"));
+    }
+
+    // Remembers the identity of the file currently being read
+    private void remember(BasicFileAttributes attrs)
+    {
+        fileKey = attrs.fileKey();
+        creationTime = attrs.creationTime();
+        lastModified = attrs.lastModifiedTime();
+    }
+
+    // True if the attributes still describe the file we were reading
+    private boolean sameFile(BasicFileAttributes attrs)
+    {
+        if (fileKey != null && attrs.fileKey() != null)
+        {
+            return fileKey.equals(attrs.fileKey());
+        }
+
+        // Some filesystems (e.g. Windows) don't expose a file key
+        return creationTime == null || creationTime.equals(attrs.creationTime());
+    }
+}
@@ -0,0 +1,416 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IngestService - Creates many files at once from a manifest or a ZIP archive.
+ *
+ * A manifest is a text file with one source file per line, optionally followed by a tab and
+ * the name to give it in the target directory; blank lines and lines starting with # are
+ * ignored. Relative sources are resolved against the manifest's directory.
+ *
+ * Files are written by parallel writers without syncing each one. With sync enabled, the
+ * syncs are deferred until everything is written: every file is then still synced on its own
+ * (there is no portable way to sync many files at once), but the writers do it side by side so
+ * the filesystem can overlap their journal commits, followed by every new directory once.
+ */
+public class IngestService
+{
+    public static final String ARCHIVE_SUFFIX = ".zip";
+
+    // Files handed to a writer at a time; keeps task overhead small for tiny files
+    private static final int BATCH_SIZE = 256;
+
+    private final FileManager fileManager;
+    private final ExecutorService writers;
+    private final int parallelism;
+
+    /**
+     * Constructs an IngestService with two writers per processor, since writers mostly wait on I/O.
+     *
+     * @param fileManager FileManager used to create the files.
+     */
+    public IngestService(FileManager fileManager)
+    {
+        this(fileManager, Math.min(16, 2 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Constructs an IngestService.
+     *
+     * @param fileManager FileManager used to create the files.
+     * @param parallelism Number of writer threads.
+     */
+    public IngestService(FileManager fileManager, int parallelism)
+    {
+        this.fileManager = fileManager;
+        this.parallelism = parallelism;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(parallelism, runnable ->
+        {
+            Thread thread = new Thread(runnable, "ingest-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the files listed in a manifest, or contained in a ZIP archive, under a target directory.
+     * Files that fail are skipped and reported together through ErrorManager.
+     *
+     * @param source          A manifest file, or an archive ending in ".zip".
+     * @param targetDirectory Directory to create the files in; created if missing.
+     * @param sync            Whether to make the files durable (fsync) before returning.
+     * @return Counts of what was written.
+     * @throws IOException if the manifest or archive can't be read, or the target directory can't be created.
+     */
+    public IngestResult ingest(Path source, Path targetDirectory, boolean sync) throws IOException
+    {
+        long start = System.nanoTime();
+        IngestResult result;
+        try (ErrorManager.Batch failures = ErrorManager.batch("importing files"))
+        {
+            if (source.getFileName().toString().toLowerCase().endsWith(ARCHIVE_SUFFIX))
+            {
+                try (FileSystem archive = FileSystems.newFileSystem(source, (ClassLoader) null))
+                {
+                    result = write(archiveEntries(archive), targetDirectory, sync, failures);
+                }
+            }
+            else
+            {
+                result = write(manifestEntries(source), targetDirectory, sync, failures);
+            }
+        }
+        result.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return result;
+    }
+
+    // Reads the manifest; targets default to the source as written (relative) or its file name (absolute)
+    private static List<Entry> manifestEntries(Path manifest) throws IOException
+    {
+        Path base = manifest.toAbsolutePath().getParent();
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                if (line.isBlank() || line.startsWith("#"))
+                {
+                    continue;
+                }
+
+                int tab = line.indexOf('\t');
+                String sourceName = (tab < 0 ? line : line.substring(0, tab)).trim();
+                Path sourcePath = base.getFileSystem().getPath(sourceName);
+                String targetName = tab >= 0 ? line.substring(tab + 1).trim()
+                        : sourcePath.isAbsolute() ? sourcePath.getFileName().toString()
+                        : sourceName;
+                entries.add(new Entry(base.resolve(sourcePath), targetName, false));
+            }
+        }
+        return entries;
+    }
+
+    // Lists the archive's files and directories; sizes come from the archive's central directory
+    private static List<Entry> archiveEntries(FileSystem archive) throws IOException
+    {
+        List<Entry> entries = new ArrayList<>();
+        for (Path root : archive.getRootDirectories())
+        {
+            Files.walkFileTree(root, new SimpleFileVisitor<>()
+            {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                {
+                    if (!dir.equals(root))
+                    {
+                        entries.add(new Entry(dir, root.relativize(dir).toString(), true));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                {
+                    entries.add(new Entry(file, root.relativize(file).toString(), false));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return entries;
+    }
+
+    // Creates all directories up front, writes the files in parallel batches, then syncs them
+    private IngestResult write(List<Entry> entries, Path targetDirectory, boolean sync, ErrorManager.Batch failures)
+            throws IOException
+    {
+        Path root = targetDirectory.toAbsolutePath().normalize();
+        Path created = null;
+        for (Path missing = root; missing != null && Files.notExists(missing); missing = missing.getParent())
+        {
+            created = missing;
+        }
+        Files.createDirectories(root);
+
+        // Resolve targets, refusing any that would land outside the target directory
+        Set<Path> directories = new TreeSet<>(Comparator.comparingInt(Path::getNameCount).thenComparing(Comparator.naturalOrder()));
+        List<Entry> files = new ArrayList<>();
+        for (Entry entry : entries)
+        {
+            Path target = root.resolve(entry.targetName).normalize();
+            if (!target.startsWith(root) || target.equals(root))
+            {
+                failures.handle(new IOException("Entry outside target directory: " + entry.targetName));
+                continue;
+            }
+
+            entry.target = target;
+            if (!entry.directory)
+            {
+                files.add(entry);
+            }
+
+            // Every directory between the root and the entry is created (and synced) if missing, not only the nearest
+            for (Path directory = entry.directory ? target : target.getParent(); !directory.equals(root);
+                 directory = directory.getParent())
+            {
+                if (!directories.add(directory))
+                {
+                    break;
+                }
+            }
+        }
+
+        // Shallowest first, so each createDirectories call finds its parent already there
+        for (Path directory : directories)
+        {
+            try
+            {
+                Files.createDirectories(directory);
+            }
+            catch (IOException e)
+            {
+                failures.handle(e);
+            }
+        }
+
+        IngestResult result = new IngestResult(root);
+        List<Path> written = new ArrayList<>();
+        List<Future<List<Path>>> batches = new ArrayList<>();
+        for (int from = 0; from < files.size(); from += BATCH_SIZE)
+        {
+            List<Entry> batch = files.subList(from, Math.min(files.size(), from + BATCH_SIZE));
+            batches.add(writers.submit(() -> writeBatch(batch, result.bytes, failures)));
+        }
+        for (Future<List<Path>> batch : batches)
+        {
+            written.addAll(await(batch));
+        }
+        result.files = written.size();
+        result.directories = directories.size();
+
+        if (sync)
+        {
+            // Directories created for the root hold new entries too, up to the parent of the highest one
+            directories.add(root);
+            for (Path directory = root; created != null && directory != null; directory = directory.getParent())
+            {
+                directories.add(directory);
+                if (directory.equals(created.getParent()))
+                {
+                    break;
+                }
+            }
+            syncAll(written, directories, failures);
+            result.synced = true;
+        }
+        result.failures = failures.getFailureCount();
+        return result;
+    }
+
+    // Writes one batch of files; returns the ones that were created
+    private List<Path> writeBatch(List<Entry> batch, LongAdder bytes, ErrorManager.Batch failures)
+    {
+        List<Path> written = new ArrayList<>(batch.size());
+        for (Entry entry : batch)
+        {
+            try (SeekableByteChannel in = Files.newByteChannel(entry.source))
+            {
+                bytes.add(fileManager.createFile(entry.target, in));
+                written.add(entry.target);
+            }
+            catch (IOException | RuntimeException e)
+            {
+                failures.handle(e);
+            }
+        }
+        return written;
+    }
+
+    // Flushes every written file, then every directory (deepest first) so the new entries are durable.
+    // There is no portable syncfs(), so this is one fsync per file; the writers share them out.
+    private void syncAll(List<Path> files, Set<Path> directories, ErrorManager.Batch failures) throws IOException
+    {
+        List<Future<?>> syncs = new ArrayList<>();
+        int chunk = Math.max(1, (files.size() + parallelism - 1) / parallelism);
+        for (int from = 0; from < files.size(); from += chunk)
+        {
+            List<Path> part = files.subList(from, Math.min(files.size(), from + chunk));
+            syncs.add(writers.submit(() ->
+            {
+                for (Path file : part)
+                {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE))
+                    {
+                        channel.force(true);
+                    }
+                    catch (IOException e)
+                    {
+                        failures.handle(e);
+                    }
+                }
+            }));
+        }
+        for (Future<?> sync : syncs)
+        {
+            await(sync);
+        }
+
+        List<Path> deepestFirst = new ArrayList<>(directories);
+        Collections.reverse(deepestFirst);
+        for (Path directory : deepestFirst)
+        {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+            {
+                channel.force(true);
+            }
+            catch (IOException e)
+            {
+                // Some platforms (Windows) and filesystems can't open or sync directories; nothing more to do there
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static final class Entry
+    {
+        final Path source;
+        final String targetName;
+        final boolean directory;
+        Path target;
+
+        Entry(Path source, String targetName, boolean directory)
+        {
+            this.source = source;
+            this.targetName = targetName;
+            this.directory = directory;
+        }
+    }
+
+    /**
+     * IngestResult - Counts of a completed import.
+     */
+    public static class IngestResult
+    {
+        private final Path targetDirectory;
+        private final LongAdder bytes = new LongAdder();
+        private int files;
+        private int directories;
+        private long failures;
+        private boolean synced;
+        private long elapsedMillis;
+
+        IngestResult(Path targetDirectory)
+        {
+            this.targetDirectory = targetDirectory;
+        }
+
+        public Path getTargetDirectory()
+        {
+            return targetDirectory;
+        }
+
+        public int getFiles()
+        {
+            return files;
+        }
+
+        public int getDirectories()
+        {
+            return directories;
+        }
+
+        public long getBytes()
+        {
+            return bytes.sum();
+        }
+
+        public long getFailures()
+        {
+            return failures;
+        }
+
+        public boolean isSynced()
+        {
+            return synced;
+        }
+
+        public long getElapsedMillis()
+        {
+            return elapsedMillis;
+        }
+
+        /**
+         * Returns a one-line summary of the counts.
+         *
+         * @return Summary text.
+         */
+        public String summary()
+        {
+            return "Imported " + files + " file(s), " + bytes.sum() + " bytes into " + targetDirectory.getFileName()
+                    + " in " + elapsedMillis + " ms" + (synced ? " (synced)" : "")
+                    + (failures > 0 ? ", " + failures + " failed" : "");
+        }
+
+        @Override
+        public String toString()
+        {
+            return summary();
+        }
+    }
+}
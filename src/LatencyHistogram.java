@@ -0,0 +1,107 @@
+/**
+ * LatencyHistogram - Records latencies in log-linear buckets for percentile reporting.
+ *
+ * Values are grouped by power of two with 64 linear sub-buckets each, so every percentile is
+ * accurate to within about 1.5% while the histogram stays a fixed array of counters no matter
+ * how many values it holds. Not thread-safe: give each thread its own and merge them afterwards.
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[(64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+    private long count;
+    private long max;
+    private double sum;
+
+    /**
+     * Records one value.
+     *
+     * @param value The value (e.g. nanoseconds); negative values are recorded as 0.
+     */
+    public void record(long value)
+    {
+        value = Math.max(0, value);
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all values recorded by another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void merge(LatencyHistogram other)
+    {
+        for (int i = 0; i < counts.length; i++)
+        {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values fall.
+     *
+     * @param percentile Percentage between 0 and 100 (e.g. 99.9).
+     * @return The upper bound of the bucket holding that percentile, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++)
+        {
+            seen += counts[i];
+            if (seen >= target)
+            {
+                return i + 1 == counts.length ? max : Math.min(max, lowestValue(i + 1) - 1);
+            }
+        }
+        return max;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    public double getMean()
+    {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    // Values below SUB_BUCKETS get their own bucket; above that, the top bits select the sub-bucket
+    private static int index(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // Smallest value that falls into the given bucket
+    private static long lowestValue(int index)
+    {
+        int bucket = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        return bucket == 0 ? sub : (long) (SUB_BUCKETS + sub) << (bucket - 1);
+    }
+}
@@ -0,0 +1,647 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadTest - Runs a concurrent mix of file operations against FileManager and reports how it holds up.
+ *
+ * Generates a directory tree (see TreeGenerator), then runs list/read/update/create/rename/delete
+ * operations from several threads, either drawn from a weighted mix or replayed from a trace that
+ * an earlier run recorded. Reports throughput and p50/p99/p999 latency per operation, plus the
+ * garbage collections and allocations during the measured part of the run.
+ *
+ * With a rate set, operations are issued on a fixed schedule and latency is measured from the
+ * scheduled start, so a stall also counts against the operations that had to wait for it.
+ *
+ * Usage: java LoadTest [options]
+ *   --memory                use an in-memory filesystem instead of a temporary directory on disk
+ *   --dir=PATH              generate the tree in PATH instead (must not exist yet)
+ *   --keep                  don't delete the tree afterwards
+ *   --fanout=4 --depth=3 --files=20 --sizes=lognormal:4096 --seed=1
+ *                           tree shape; sizes are "N", "MIN-MAX" or "lognormal:MEDIAN"
+ *   --mix=list:10,read:50,update:20,create:10,rename:5,delete:5
+ *   --threads=4 --rate=0 --duration=10 --warmup=2
+ *                           rate is operations per second in total, 0 for as fast as possible
+ *   --record=FILE           write every operation issued to a trace file
+ *   --replay=FILE           run the operations of a trace instead of the mix; every operation on a
+ *                           file (following it through renames) goes to the same thread, in trace order,
+ *                           while listings may still overlap changes in the listed directory
+ */
+public class LoadTest
+{
+    /**
+     * Operation types, in report order.
+     */
+    enum Operation
+    {
+        LIST, READ, UPDATE, CREATE, RENAME, DELETE;
+
+        String id()
+        {
+            return name().toLowerCase();
+        }
+
+        static Operation fromId(String id)
+        {
+            return valueOf(id.toUpperCase());
+        }
+    }
+
+    private static final Set<String> OPTIONS = Set.of("memory", "dir", "keep", "fanout", "depth", "files", "sizes",
+            "seed", "mix", "threads", "rate", "duration", "warmup", "record", "replay");
+
+    private final FileManager fileManager;
+    private final Path root;
+    private final List<Path> directories;
+    private final FilePool files;
+    private final TreeGenerator.SizeDistribution sizes;
+    private final AtomicLong names = new AtomicLong();
+    private final BufferedWriter trace;
+
+    private LoadTest(FileManager fileManager, Path root, TreeGenerator.Tree tree,
+                     TreeGenerator.SizeDistribution sizes, BufferedWriter trace)
+    {
+        this.fileManager = fileManager;
+        this.root = root;
+        this.directories = tree.getDirectories();
+        this.files = new FilePool(tree.getFiles());
+        this.sizes = sizes;
+        this.trace = trace;
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        Map<String, String> options = parse(args);
+        int fanOut = Integer.parseInt(options.getOrDefault("fanout", "4"));
+        int depth = Integer.parseInt(options.getOrDefault("depth", "3"));
+        int filesPerDirectory = Integer.parseInt(options.getOrDefault("files", "20"));
+        TreeGenerator.SizeDistribution sizes = TreeGenerator.SizeDistribution.parse(options.getOrDefault("sizes", "lognormal:4096"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        double duration = Double.parseDouble(options.getOrDefault("duration", "10"));
+        double warmup = Double.parseDouble(options.getOrDefault("warmup", "2"));
+        String mixSpec = options.getOrDefault("mix", "list:10,read:50,update:20,create:10,rename:5,delete:5");
+        double[] mix = parseMix(mixSpec);
+
+        // Workspace: in memory, a given directory, or a fresh temporary one
+        FileSystem fileSystem = null;
+        Path root;
+        if (options.containsKey("memory"))
+        {
+            fileSystem = MemoryFileSystem.create("loadtest");
+            root = fileSystem.getPath("/loadtest");
+        }
+        else if (options.containsKey("dir"))
+        {
+            root = Paths.get(options.get("dir")).toAbsolutePath();
+            Files.createDirectory(root);
+        }
+        else
+        {
+            root = Files.createTempDirectory("loadtest");
+        }
+        FileManager fileManager = new FileManager(root.getFileSystem());
+
+        TreeGenerator.Tree tree = new TreeGenerator(fanOut, depth, filesPerDirectory, sizes, seed).generate(fileManager, root);
+        System.out.println("Tree: " + tree + " (" + (fileSystem != null ? "memory" : root) + ")");
+
+        List<String[]> replay = options.containsKey("replay") ? readTrace(Paths.get(options.get("replay"))) : null;
+        BufferedWriter trace = options.containsKey("record")
+                ? Files.newBufferedWriter(Paths.get(options.get("record")), StandardCharsets.UTF_8) : null;
+
+        try
+        {
+            LoadTest test = new LoadTest(fileManager, root, tree, sizes, trace);
+            System.out.println("Run: " + threads + " thread(s), "
+                    + (rate > 0 ? rate + " ops/s" : "unlimited rate") + ", "
+                    + (replay != null ? replay.size() + " operations from " + options.get("replay")
+                                      : duration + " s of " + mixSpec)
+                    + (warmup > 0 ? " (+" + warmup + " s warm-up)" : ""));
+            test.run(threads, rate, (long) (duration * 1e9), (long) (warmup * 1e9), mix, seed, replay);
+        }
+        finally
+        {
+            if (trace != null)
+            {
+                trace.close();
+            }
+            if (!options.containsKey("keep"))
+            {
+                fileManager.delete(root);
+            }
+            if (fileSystem != null)
+            {
+                fileSystem.close();
+            }
+        }
+    }
+
+    // Runs the workers, then merges their measurements and prints the report
+    private void run(int threads, double rate, long durationNanos, long warmupNanos, double[] mix, long seed,
+                     List<String[]> replay) throws InterruptedException
+    {
+        long interval = rate > 0 ? (long) (1e9 / rate) : 0;
+        AtomicLong tickets = new AtomicLong();
+        long start = System.nanoTime() + 10_000_000;
+        long measureFrom = start + warmupNanos;
+        long end = replay != null ? Long.MAX_VALUE : measureFrom + durationNanos;
+
+        List<List<Integer>> shards = replay != null ? partition(replay, threads) : null;
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+        {
+            Worker worker = new Worker(new Random(seed + i + 1), tickets, start, interval, measureFrom, end, mix,
+                    replay, shards != null ? shards.get(i) : null);
+            worker.setName("load-" + (i + 1));
+            workers.add(worker);
+        }
+
+        workers.forEach(Thread::start);
+        LockSupport.parkNanos(Math.max(0, measureFrom - System.nanoTime()));
+        GcSnapshot gcBefore = new GcSnapshot();
+        for (Worker worker : workers)
+        {
+            worker.join();
+        }
+        GcSnapshot gcAfter = new GcSnapshot();
+        long measuredNanos = Math.max(1, Math.min(System.nanoTime(), end) - measureFrom);
+
+        // Merge the per-thread measurements
+        LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        long[] errors = new long[latencies.length];
+        String[] firstErrors = new String[latencies.length];
+        long allocated = 0;
+        long operations = 0;
+        for (int i = 0; i < latencies.length; i++)
+        {
+            latencies[i] = new LatencyHistogram();
+        }
+        for (Worker worker : workers)
+        {
+            for (int i = 0; i < latencies.length; i++)
+            {
+                latencies[i].merge(worker.latencies[i]);
+                errors[i] += worker.errors[i];
+                if (firstErrors[i] == null)
+                {
+                    firstErrors[i] = worker.firstErrors[i];
+                }
+            }
+            allocated += worker.allocated;
+            operations += worker.measured;
+        }
+
+        report(latencies, errors, firstErrors, measuredNanos, operations, allocated, gcBefore, gcAfter);
+    }
+
+    private static void report(LatencyHistogram[] latencies, long[] errors, String[] firstErrors, long measuredNanos,
+                               long operations, long allocated, GcSnapshot gcBefore, GcSnapshot gcAfter)
+    {
+        double seconds = measuredNanos / 1e9;
+        System.out.printf("%n%-8s %10s %8s %10s %10s %10s %10s %10s%n",
+                "op", "count", "errors", "ops/s", "p50 us", "p99 us", "p999 us", "max us");
+
+        LatencyHistogram total = new LatencyHistogram();
+        long totalErrors = 0;
+        for (Operation operation : Operation.values())
+        {
+            LatencyHistogram histogram = latencies[operation.ordinal()];
+            total.merge(histogram);
+            totalErrors += errors[operation.ordinal()];
+            if (histogram.getCount() > 0)
+            {
+                printRow(operation.id(), histogram, errors[operation.ordinal()], seconds);
+            }
+        }
+        printRow("total", total, totalErrors, seconds);
+
+        for (Operation operation : Operation.values())
+        {
+            if (firstErrors[operation.ordinal()] != null)
+            {
+                System.out.println("First " + operation.id() + " error: " + firstErrors[operation.ordinal()]);
+            }
+        }
+
+        System.out.println();
+        for (Map.Entry<String, long[]> collector : gcBefore.collectors.entrySet())
+        {
+            long[] after = gcAfter.collectors.getOrDefault(collector.getKey(), collector.getValue());
+            System.out.println("GC " + collector.getKey() + ": " + (after[0] - collector.getValue()[0])
+                    + " collection(s), " + (after[1] - collector.getValue()[1]) + " ms");
+        }
+        if (allocated >= 0)
+        {
+            System.out.printf("Allocated: %.1f MB (%.1f MB/s, %d bytes/op)%n", allocated / 1e6, allocated / 1e6 / seconds,
+                    operations == 0 ? 0 : allocated / operations);
+        }
+        else
+        {
+            System.out.println("Allocated: not measurable on this JVM");
+        }
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram, long errors, double seconds)
+    {
+        System.out.printf("%-8s %10d %8d %10.0f %10.1f %10.1f %10.1f %10.1f%n", name, histogram.getCount(), errors,
+                histogram.getCount() / seconds, histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3,
+                histogram.getPercentile(99.9) / 1e3, histogram.getMax() / 1e3);
+    }
+
+    // Picks the next operation from the mix; operations on files fall back to create once none are left
+    private String[] nextFromMix(Random random, double[] mix)
+    {
+        double pick = random.nextDouble() * mix[mix.length - 1];
+        Operation operation = Operation.values()[0];
+        for (int i = 0; i < mix.length; i++)
+        {
+            if (pick < mix[i])
+            {
+                operation = Operation.values()[i];
+                break;
+            }
+        }
+
+        Path directory = directories.get(random.nextInt(directories.size()));
+        Path file = null;
+        if (operation == Operation.READ || operation == Operation.UPDATE)
+        {
+            file = files.peek(random);
+        }
+        else if (operation == Operation.RENAME || operation == Operation.DELETE)
+        {
+            // Taken out of the pool so no other thread picks a file that is about to disappear
+            file = files.take(random);
+        }
+        if (file == null && operation != Operation.LIST && operation != Operation.CREATE)
+        {
+            operation = Operation.CREATE;
+        }
+
+        switch (operation)
+        {
+            case LIST:
+                return new String[] { operation.id(), relative(directory) };
+            case READ:
+            case DELETE:
+                return new String[] { operation.id(), relative(file) };
+            case UPDATE:
+                return new String[] { operation.id(), relative(file), String.valueOf(sizes.next(random)) };
+            case CREATE:
+                return new String[] { operation.id(), relative(directory.resolve("new-" + names.incrementAndGet() + ".txt")),
+                        String.valueOf(sizes.next(random)) };
+            default:
+                return new String[] { operation.id(), relative(file),
+                        relative(file.resolveSibling("renamed-" + names.incrementAndGet() + ".txt")) };
+        }
+    }
+
+    // Executes one operation and keeps the file pool in step with what now exists
+    private void execute(Operation operation, String[] op) throws IOException
+    {
+        Path path = root.resolve(op[1]);
+        switch (operation)
+        {
+            case LIST:
+                fileManager.listDirectory(path);
+                break;
+            case READ:
+                fileManager.readFile(path);
+                break;
+            case UPDATE:
+                fileManager.updateFile(path, TreeGenerator.content(Long.parseLong(op[2])));
+                break;
+            case CREATE:
+                fileManager.createFile(path, TreeGenerator.content(Long.parseLong(op[2])));
+                files.add(path);
+                break;
+            case RENAME:
+                Path target = root.resolve(op[2]);
+                try
+                {
+                    fileManager.rename(path, target);
+                }
+                catch (IOException e)
+                {
+                    files.add(path);
+                    throw e;
+                }
+                files.add(target);
+                break;
+            case DELETE:
+                fileManager.delete(path);
+                break;
+        }
+    }
+
+    private String relative(Path path)
+    {
+        return root.relativize(path).toString();
+    }
+
+    private void record(String[] op)
+    {
+        if (trace == null)
+        {
+            return;
+        }
+        synchronized (trace)
+        {
+            try
+            {
+                trace.write(String.join("\t", op));
+                trace.newLine();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static Map<String, String> parse(String[] args)
+    {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args)
+        {
+            int equals = arg.indexOf('=');
+            String key = arg.startsWith("--") ? arg.substring(2, equals < 0 ? arg.length() : equals) : arg;
+            if (!arg.startsWith("--") || !OPTIONS.contains(key))
+            {
+                System.err.println("Unknown option: " + arg + " (see the LoadTest class comment for usage)");
+                System.exit(2);
+            }
+            options.put(key, equals < 0 ? "" : arg.substring(equals + 1));
+        }
+        return options;
+    }
+
+    // Cumulative weights in Operation order, e.g. "read:80,update:20" -> [0, 80, 100, 100, 100, 100]
+    private static double[] parseMix(String spec)
+    {
+        double[] weights = new double[Operation.values().length];
+        for (String part : spec.split(","))
+        {
+            String[] weight = part.trim().split(":");
+            if (weight.length != 2)
+            {
+                throw new IllegalArgumentException("Invalid mix entry (expected op:weight): " + part);
+            }
+            weights[Operation.fromId(weight[0].trim()).ordinal()] = Double.parseDouble(weight[1].trim());
+        }
+
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++)
+        {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        if (sum <= 0)
+        {
+            throw new IllegalArgumentException("Mix has no operations: " + spec);
+        }
+        return cumulative;
+    }
+
+    // Splits a trace into one list of operation indexes per worker. Operations on the same path go to the same
+    // worker, and a rename ties its source and target together, so each file sees its operations in trace order.
+    private static List<List<Integer>> partition(List<String[]> ops, int workers)
+    {
+        Map<String, String> parents = new HashMap<>();
+        for (String[] op : ops)
+        {
+            String group = find(parents, op[1]);
+            if (Operation.fromId(op[0]) == Operation.RENAME)
+            {
+                String target = find(parents, op[2]);
+                if (!target.equals(group))
+                {
+                    parents.put(target, group);
+                }
+            }
+        }
+
+        List<List<Integer>> shards = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++)
+        {
+            shards.add(new ArrayList<>());
+        }
+        for (int i = 0; i < ops.size(); i++)
+        {
+            shards.get(Math.floorMod(find(parents, ops.get(i)[1]).hashCode(), workers)).add(i);
+        }
+        return shards;
+    }
+
+    // Union-find lookup with path halving; a path seen for the first time is its own group
+    private static String find(Map<String, String> parents, String path)
+    {
+        String parent = parents.putIfAbsent(path, path);
+        while (parent != null && !parent.equals(path))
+        {
+            String grandparent = parents.get(parent);
+            parents.put(path, grandparent);
+            path = grandparent;
+            parent = parents.get(path);
+        }
+        return path;
+    }
+
+    private static List<String[]> readTrace(Path file) throws IOException
+    {
+        List<String[]> ops = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8))
+        {
+            if (!line.isBlank())
+            {
+                ops.add(line.split("\t", -1));
+            }
+        }
+        return ops;
+    }
+
+    /**
+     * Worker - One load thread with its own measurements, merged after the run.
+     */
+    private final class Worker extends Thread
+    {
+        final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        final long[] errors = new long[latencies.length];
+        final String[] firstErrors = new String[latencies.length];
+        long allocated = -1;
+        long measured;
+
+        private final Random random;
+        private final AtomicLong tickets;
+        private final long start;
+        private final long interval;
+        private final long measureFrom;
+        private final long end;
+        private final double[] mix;
+        private final List<String[]> replay;
+        private final List<Integer> shard;
+
+        Worker(Random random, AtomicLong tickets, long start, long interval, long measureFrom, long end,
+               double[] mix, List<String[]> replay, List<Integer> shard)
+        {
+            this.random = random;
+            this.tickets = tickets;
+            this.start = start;
+            this.interval = interval;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.mix = mix;
+            this.replay = replay;
+            this.shard = shard;
+            for (int i = 0; i < latencies.length; i++)
+            {
+                latencies[i] = new LatencyHistogram();
+            }
+            setDaemon(true);
+        }
+
+        @Override
+        public void run()
+        {
+            long allocatedAtMeasureStart = -1;
+            int next = 0;
+            while (true)
+            {
+                // A replayed operation keeps its place in the trace, so the schedule is the same as in one thread
+                if (shard != null && next >= shard.size())
+                {
+                    break;
+                }
+                long ticket = shard != null ? shard.get(next++) : tickets.getAndIncrement();
+                long scheduled = interval > 0 ? start + ticket * interval : Math.max(start, System.nanoTime());
+                if (scheduled >= end)
+                {
+                    break;
+                }
+                while (System.nanoTime() < scheduled)
+                {
+                    LockSupport.parkNanos(scheduled - System.nanoTime());
+                }
+
+                boolean measuring = scheduled >= measureFrom;
+                if (measuring && allocatedAtMeasureStart < 0)
+                {
+                    allocatedAtMeasureStart = allocatedBytes();
+                }
+
+                String[] op = replay != null ? replay.get((int) ticket) : nextFromMix(random, mix);
+                Operation operation = Operation.fromId(op[0]);
+                record(op);
+
+                long began = interval > 0 ? scheduled : System.nanoTime();
+                try
+                {
+                    execute(operation, op);
+                }
+                catch (IOException | RuntimeException e)
+                {
+                    if (measuring)
+                    {
+                        errors[operation.ordinal()]++;
+                        if (firstErrors[operation.ordinal()] == null)
+                        {
+                            firstErrors[operation.ordinal()] = e.toString();
+                        }
+                    }
+                }
+                if (measuring)
+                {
+                    latencies[operation.ordinal()].record(System.nanoTime() - began);
+                    measured++;
+                }
+            }
+
+            long allocatedAtEnd = allocatedBytes();
+            if (allocatedAtMeasureStart >= 0 && allocatedAtEnd >= 0)
+            {
+                allocated = allocatedAtEnd - allocatedAtMeasureStart;
+            }
+            else if (allocatedAtEnd >= 0)
+            {
+                allocated = 0;
+            }
+        }
+    }
+
+    // Bytes allocated by the calling thread so far, or -1 if the JVM can't tell
+    private static long allocatedBytes()
+    {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean)
+        {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled())
+            {
+                return hotspot.getCurrentThreadAllocatedBytes();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * GcSnapshot - Collection counts and times of every garbage collector at one moment.
+     */
+    private static final class GcSnapshot
+    {
+        final Map<String, long[]> collectors = new LinkedHashMap<>();
+
+        GcSnapshot()
+        {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            {
+                collectors.put(collector.getName(), new long[] { collector.getCollectionCount(), collector.getCollectionTime() });
+            }
+        }
+    }
+
+    /**
+     * FilePool - The files operations can currently pick from, with O(1) random pick and removal.
+     */
+    private static final class FilePool
+    {
+        private final List<Path> files;
+
+        FilePool(List<Path> files)
+        {
+            this.files = new ArrayList<>(files);
+        }
+
+        synchronized Path peek(Random random)
+        {
+            return files.isEmpty() ? null : files.get(random.nextInt(files.size()));
+        }
+
+        synchronized Path take(Random random)
+        {
+            if (files.isEmpty())
+            {
+                return null;
+            }
+            int index = random.nextInt(files.size());
+            Path last = files.remove(files.size() - 1);
+            return index == files.size() ? last : files.set(index, last);
+        }
+
+        synchronized void add(Path file)
+        {
+            files.add(file);
+        }
+    }
+}
@@ -3,6 +3,8 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class Main extends Application
@@ -16,9 +18,7 @@ public class Main extends Application
           Parent root = loader.load();
 
           MainView controller = loader.getController();
-          controller.setFileController(new FileController(
-                  Paths.get(System.getProperty("user.home"), "FileManagerGUI")
-          ));
+          controller.setFileController(new FileController(startDirectory()));
 
           primaryStage.setTitle("File Management System");
           primaryStage.setScene(new Scene(root, 800, 600));
@@ -30,6 +30,17 @@ public class Main extends Application
       }
     }
 
+    // "--memory" runs a scratch workspace in RAM instead of ~/FileManagerGUI
+    private Path startDirectory() throws IOException
+    {
+        if (getParameters().getRaw().contains("--memory"))
+        {
+            return MemoryFileSystem.create("scratch").getPath("/FileManagerGUI");
+        }
+
+        return Paths.get(System.getProperty("user.home"), "FileManagerGUI");
+    }
+
     public static void main(String[] args)
     {
         launch(args);
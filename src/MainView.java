@@ -1,24 +1,52 @@
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
  * JavaFX controller for the File Manager GUI
  */
 public class MainView
 {
+    @FXML private TreeView<FileItem> directoryTree;
     @FXML private ListView<String> fileList;
     @FXML private TextArea fileContent;
     @FXML private Label statusBar;
+    @FXML private TitledPane errorPanel;
+    @FXML private ListView<String> errorLog;
 
     private FileController controller;
+    private DirectoryTreeLoader treeLoader;
+    private PathCompleter pathCompleter;
+    private FileTailer tailer;
+    private final AtomicBoolean tailRenderPending = new AtomicBoolean();
 
     // Initializes controller and populates file list when GUI is loaded
     protected void setFileController(FileController controller)
     {
         this.controller = controller;
+        ErrorManager.attach(errorPanel, errorLog);
+        this.treeLoader = new DirectoryTreeLoader(controller.getFileManager());
+        this.pathCompleter = new PathCompleter(controller.getFileManager());
+
+        directoryTree.getSelectionModel().selectedItemProperty().addListener((obs, old, selected) ->
+        {
+            if (selected != null)
+            {
+                onTreeSelection(selected.getValue());
+            }
+        });
+
+        resetDirectoryTree();
         refreshFileList();
     }
 
@@ -26,9 +54,32 @@ public class MainView
     @FXML
     private void onList()
     {
+        resetDirectoryTree();
         refreshFileList();
     }
 
+    // Navigates to the directory selected in the tree panel
+    private void onTreeSelection(FileItem directory)
+    {
+        if (directory.getPath().equals(controller.getCurrentDirectory()))
+        {
+            return;
+        }
+
+        stopFollowing();
+
+        try
+        {
+            controller.navigateTo(directory.getPath());
+            refreshFileList();
+            setStatus("Navigated to: " + directory.getPath());
+        }
+        catch (Exception e)
+        {
+            setStatus("Error navigating: " + e.getMessage());
+        }
+    }
+
     // Creates new file in current directory
     @FXML
     private void onCreateFile()
@@ -42,41 +93,19 @@ public class MainView
         {
             try
             {
-                Path newFile = controller.getCurrentDirectory().resolve(name);
-
-                // Check if it already exists before attempting creation
-                if (Files.exists(newFile))
-                {
-                    showAlert(Alert.AlertType.WARNING, "File Exists",
-                            "A file with that name already exists: " + name);
-                    setStatus("File already exists: " + name);
-                    return;
-                }
-
-                // Attempt to create file
+                // CREATE_NEW reports an existing file itself; no pre- or post-check needed
                 controller.createFile(name, "");
-
-                // Confirm it was actually created
-                if (Files.exists(newFile))
-                {
-                    refreshFileList();
-                    setStatus("File created: " + name);
-                    showAlert(Alert.AlertType.INFORMATION, "File Created",
-                            "File created successfully: " + name);
-                }
-                else
-                {
-                    setStatus("File creation failed: " + name);
-                    showAlert(Alert.AlertType.ERROR, "Create Failed",
-                            "The file could not be created: " + name);
-                }
+                addToFileList(name);
+                reloadTree(name);
+                setStatus("File created: " + name);
+                showAlert(Alert.AlertType.INFORMATION, "File Created",
+                        "File created successfully: " + name);
             }
             catch (Exception e)
             {
-                ErrorManager.handle(e, "creating file");
-                setStatus("Error creating file: " + e.getMessage());
-                showAlert(Alert.AlertType.ERROR, "File Creation Failed",
-                        "Error creating file:\n" + e.getMessage());
+                setStatus(e.getCause() instanceof FileAlreadyExistsException
+                        ? "File already exists: " + name
+                        : "Error creating file: " + e.getMessage());
             }
         });
     }
@@ -94,41 +123,19 @@ public class MainView
         {
             try
             {
-                Path newDir = controller.getCurrentDirectory().resolve(name);
-
-                // Pre-check if it already exists
-                if (Files.exists(newDir))
-                {
-                    showAlert(Alert.AlertType.WARNING, "Directory Exists",
-                            "A directory with that name already exists: " + name);
-                    setStatus("Directory already exists: " + name);
-                    return;
-                }
-
-                // Try to create directory
+                // createDirectory reports an existing entry itself; no pre- or post-check needed
                 controller.createDirectory(name);
-
-                // Post-check: verify if directory was created
-                if (Files.isDirectory(newDir))
-                {
-                    refreshFileList();
-                    setStatus("Directory created: " + name);
-                    showAlert(Alert.AlertType.INFORMATION, "Directory Created",
-                            "Directory created successfully: " + name);
-                }
-                else
-                {
-                    setStatus("Directory creation failed: " + name);
-                    showAlert(Alert.AlertType.ERROR, "Create Failed",
-                            "The directory could not be created: " + name);
-                }
+                addToFileList(name);
+                reloadTree(name);
+                setStatus("Directory created: " + name);
+                showAlert(Alert.AlertType.INFORMATION, "Directory Created",
+                        "Directory created successfully: " + name);
             }
             catch (Exception e)
             {
-                ErrorManager.handle(e, "creating directory");
-                setStatus("Error creating directory: " + e.getMessage());
-                showAlert(Alert.AlertType.ERROR, "Directory Creation Failed",
-                        "Error creating directory:\n" + e.getMessage());
+                setStatus(e.getCause() instanceof FileAlreadyExistsException
+                        ? "Directory already exists: " + name
+                        : "Error creating directory: " + e.getMessage());
             }
         });
     }
@@ -145,18 +152,50 @@ public class MainView
             return;
         }
 
+        stopFollowing();
+
         try
         {
             String content = controller.readFile(selected);
             fileContent.setText(content);
+            fileContent.setEditable(true);
             setStatus("Opened: " + selected);
         }
         catch (Exception e)
         {
-            ErrorManager.handle(e, "reading file");
             setStatus("Error reading file: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "Read Failed",
-                    "Could not read file: " + selected + "\n" + e.getMessage());
+        }
+    }
+
+    // Toggles follow mode: shows the selected file's newest lines and keeps appending as it grows
+    @FXML
+    private void onFollowFile()
+    {
+        if (tailer != null)
+        {
+            String followed = tailer.getPath().getFileName().toString();
+            stopFollowing();
+            setStatus("Stopped following: " + followed);
+            return;
+        }
+
+        String selected = fileList.getSelectionModel().getSelectedItem();
+        if (selected == null)
+        {
+            setStatus("No file selected.");
+            return;
+        }
+
+        try
+        {
+            tailer = controller.followFile(selected, lines -> scheduleTailRender());
+            fileContent.setEditable(false);
+            renderTail();
+            setStatus("Following: " + selected);
+        }
+        catch (Exception e)
+        {
+            setStatus("Error following file: " + e.getMessage());
         }
     }
 
@@ -164,6 +203,17 @@ public class MainView
     @FXML
     private void onUpdateFile()
     {
+        if (tailer != null)
+        {
+            setStatus("Stop following before saving changes.");
+            return;
+        }
+        if (!fileContent.isEditable())
+        {
+            setStatus("Open a file before saving changes.");
+            return;
+        }
+
         String selected = fileList.getSelectionModel().getSelectedItem();
         if (selected == null)
         {
@@ -171,19 +221,11 @@ public class MainView
             return;
         }
 
-        Path path = controller.getCurrentDirectory().resolve(selected);
         String content = fileContent.getText();
 
         try
         {
-            if (!Files.isWritable(path))
-            {
-                showAlert(Alert.AlertType.ERROR, "Permission Denied",
-                        "Cannot write to file: " + selected + " (read-only or restricted access).");
-                setStatus("Update failed: file not writable.");
-                return;
-            }
-
+            // A read-only file fails on open with AccessDeniedException; no isWritable pre-check
             controller.updateFile(selected, content);
             setStatus("File updated: " + selected);
             showAlert(Alert.AlertType.INFORMATION, "File Updated",
@@ -191,10 +233,7 @@ public class MainView
         }
         catch (Exception e)
         {
-            ErrorManager.handle(e, "updating file");
             setStatus("Error updating file: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "Update Failed",
-                    "Failed to update file: " + e.getMessage());
         }
     }
 
@@ -221,17 +260,15 @@ public class MainView
                 try
                 {
                     controller.delete(selected);
-                    refreshFileList();
+                    fileList.getItems().remove(selected);
+                    reloadTree(selected);
                     setStatus("Deleted: " + selected);
                     showAlert(Alert.AlertType.INFORMATION, "Delete Successful",
                             selected + " was deleted successfully.");
                 }
                 catch (Exception e)
                 {
-                    ErrorManager.handle(e, "deleting file");
                     setStatus("Error deleting file: " + e.getMessage());
-                    showAlert(Alert.AlertType.ERROR, "Delete Failed",
-                            "Failed to delete file: " + e.getMessage());
                 }
             }
         });
@@ -264,47 +301,276 @@ public class MainView
             try
             {
                 controller.rename(selected, newName);
-                refreshFileList();
+                fileList.getItems().remove(selected);
+                addToFileList(newName);
+                reloadTree(selected);
+                reloadTree(newName);
                 setStatus("Renamed: " + selected + " → " + newName);
                 showAlert(Alert.AlertType.INFORMATION, "Rename Successful",
                         "File renamed successfully to: " + newName);
             }
             catch (Exception e)
             {
-                ErrorManager.handle(e, "renaming file");
                 setStatus("Error renaming file: " + e.getMessage());
-                showAlert(Alert.AlertType.ERROR, "Rename Failed",
-                        "Failed to rename file: " + e.getMessage());
             }
         });
     }
 
+    // Renames many files of the current directory by pattern, after showing a preview
+    @FXML
+    private void onBulkRename()
+    {
+        if (controller.hasInterruptedBulkRename())
+        {
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+            confirm.setTitle("Interrupted Bulk Rename");
+            confirm.setHeaderText("A previous bulk rename in this directory did not finish.");
+            confirm.setContentText("Undo it now? This is required before renaming again.");
+
+            confirm.showAndWait().filter(response -> response == ButtonType.OK).ifPresent(response ->
+                    runBulkRename("Rolling back bulk rename...", controller::rollbackBulkRename,
+                            count -> "Rolled back " + count + " rename(s)."));
+            return;
+        }
+
+        BulkRenameDialog dialog = new BulkRenameDialog(controller.getCurrentDirectory(), List.copyOf(fileList.getItems()));
+        dialog.showAndWait().ifPresent(plan ->
+                runBulkRename("Renaming " + plan.getRenames().size() + " file(s)...", () -> controller.bulkRename(plan),
+                        count -> "Renamed " + count + " file(s)."));
+    }
+
+    // Runs a bulk rename (or its rollback) in the background, then re-lists the directory
+    private void runBulkRename(String progress, IOSupplier<Integer> task, Function<Integer, String> done)
+    {
+        stopFollowing();
+        setStatus(progress);
+
+        CompletableFuture.supplyAsync(() ->
+        {
+            try
+            {
+                return task.get();
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((count, error) -> Platform.runLater(() ->
+        {
+            onList();
+            if (error != null)
+            {
+                Exception cause = unwrap(error);
+                ErrorManager.handle(cause, "bulk renaming files");
+                setStatus("Bulk rename failed: " + cause.getMessage());
+                return;
+            }
+
+            setStatus(done.apply(count));
+        }));
+    }
+
+    private interface IOSupplier<T>
+    {
+        T get() throws IOException;
+    }
+
+    // Computes a checksum of the selected file, or writes a checksum manifest for the selected directory
+    @FXML
+    private void onChecksum()
+    {
+        String selected = fileList.getSelectionModel().getSelectedItem();
+        if (selected == null)
+        {
+            setStatus("No file selected.");
+            return;
+        }
+
+        ChoiceDialog<ChecksumAlgorithm> dialog = new ChoiceDialog<>(ChecksumAlgorithm.SHA256, ChecksumAlgorithm.values());
+        dialog.setTitle("Checksum");
+        dialog.setHeaderText("Choose a checksum algorithm:");
+
+        dialog.showAndWait().ifPresent(algorithm ->
+        {
+            Path path = controller.getCurrentDirectory().resolve(selected);
+            setStatus("Computing " + algorithm + " of " + selected + "...");
+
+            CompletableFuture.supplyAsync(() ->
+            {
+                try
+                {
+                    if (Files.isDirectory(path))
+                    {
+                        Path manifest = controller.writeChecksumManifest(selected, algorithm);
+                        return "Checksum manifest written: " + manifest.getFileName();
+                    }
+                    return algorithm + " of " + selected + ": " + controller.checksumFile(selected, algorithm);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }).whenComplete((message, error) -> Platform.runLater(() ->
+            {
+                if (error != null)
+                {
+                    Exception cause = unwrap(error);
+                    ErrorManager.handle(cause, "computing checksum");
+                    setStatus("Checksum failed: " + cause.getMessage());
+                    return;
+                }
+
+                setStatus(message);
+                refreshFileList();
+            }));
+        });
+    }
+
+    // Verifies the selected manifest (or directory containing one) and shows the report
+    @FXML
+    private void onVerifyChecksums()
+    {
+        String selected = fileList.getSelectionModel().getSelectedItem();
+        if (selected == null)
+        {
+            setStatus("No file selected.");
+            return;
+        }
+
+        setStatus("Verifying checksums: " + selected + "...");
+
+        CompletableFuture.supplyAsync(() ->
+        {
+            try
+            {
+                return controller.verifyChecksums(selected);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((result, error) -> Platform.runLater(() ->
+        {
+            if (error != null)
+            {
+                Exception cause = unwrap(error);
+                ErrorManager.handle(cause, "verifying checksums");
+                setStatus("Verification failed: " + cause.getMessage());
+                return;
+            }
+
+            // Read-only and detached from the file list, so Update can't write the report over a file
+            stopFollowing();
+            fileList.getSelectionModel().clearSelection();
+            fileContent.setEditable(false);
+            fileContent.setText(result.toString());
+            setStatus(result.summary());
+        }));
+    }
+
+    // Compares the selected directory (or the current one) with another directory in a separate window
+    @FXML
+    private void onCompareDirectories()
+    {
+        String selected = fileList.getSelectionModel().getSelectedItem();
+        String left = selected != null ? selected : ".";
+
+        TextInputDialog dialog = new TextInputDialog();
+        dialog.setTitle("Compare Directories");
+        dialog.setHeaderText("Compare " + (selected != null ? selected : "the current directory") + " with directory:");
+
+        dialog.showAndWait().filter(right -> !right.isBlank()).ifPresent(right ->
+        {
+            new CompareView(controller, left, right.trim()).start();
+            setStatus("Comparing: " + left + " ↔ " + right.trim());
+        });
+    }
+
+    // Imports the files of the selected manifest or ZIP archive into a new directory
+    @FXML
+    private void onImportFiles()
+    {
+        String selected = fileList.getSelectionModel().getSelectedItem();
+        if (selected == null)
+        {
+            setStatus("No file selected.");
+            return;
+        }
+
+        int dot = selected.lastIndexOf('.');
+        TextInputDialog dialog = new TextInputDialog(dot > 0 ? selected.substring(0, dot) : selected + "-import");
+        dialog.setTitle("Import Files");
+        dialog.setHeaderText("Import the files of " + selected + " into directory:");
+
+        dialog.showAndWait().ifPresent(target ->
+        {
+            setStatus("Importing: " + selected + "...");
+
+            CompletableFuture.supplyAsync(() ->
+            {
+                try
+                {
+                    return controller.importFiles(selected, target);
+                }
+                catch (IOException e)
+                {
+                    throw new UncheckedIOException(e);
+                }
+            }).whenComplete((result, error) -> Platform.runLater(() ->
+            {
+                if (error != null)
+                {
+                    Exception cause = unwrap(error);
+                    ErrorManager.handle(cause, "importing files");
+                    setStatus("Import failed: " + cause.getMessage());
+                    return;
+                }
+
+                addToFileList(target);
+                reloadTree(target);
+                setStatus(result.summary());
+            }));
+        });
+    }
+
     // Changes current working directory
     @FXML
     private void onNavigateFile()
     {
-        TextInputDialog dialog = new TextInputDialog();
-        dialog.setTitle("Navigate");
-        dialog.setHeaderText("Enter folder name:");
+        NavigateDialog dialog = new NavigateDialog(pathCompleter, controller.getCurrentDirectory());
 
         dialog.showAndWait().ifPresent(folder ->
         {
+            stopFollowing();
+
             try
             {
-                controller.navigateTo(Path.of(folder));
+                controller.navigateTo(controller.getFileManager().getPath(folder));
                 refreshFileList();
                 setStatus("Navigated to: " + folder);
             }
             catch (Exception e)
             {
-                ErrorManager.handle(e, "navigating to directory");
                 setStatus("Error navigating: " + e.getMessage());
-                showAlert(Alert.AlertType.ERROR, "Navigation Failed",
-                        "Failed to navigate: " + e.getMessage());
             }
         });
     }
 
+    // Shows a newly created entry without re-listing the directory (if it landed in the current one)
+    private void addToFileList(String name)
+    {
+        Path current = controller.getCurrentDirectory();
+        Path created = current.resolve(name).normalize();
+        if (current.equals(created.getParent()))
+        {
+            String fileName = created.getFileName().toString();
+            if (!fileList.getItems().contains(fileName))
+            {
+                fileList.getItems().add(fileName);
+            }
+        }
+    }
+
     // Refresh the file list in GUI
     private void refreshFileList()
     {
@@ -316,15 +582,111 @@ public class MainView
             {
                 fileList.getItems().add(item.getName());
             }
+            pathCompleter.remember(controller.getCurrentDirectory(), items);
         }
         catch (Exception e)
         {
+            ErrorManager.handle(e, "refreshing file list");
             setStatus("Error refreshing list: " + e.getMessage());
-            showAlert(Alert.AlertType.ERROR, "Refresh Failed",
-                    "Could not refresh file list: " + e.getMessage());
         }
     }
 
+    // Coalesces tailer updates so at most one render is queued on the FX thread
+    private void scheduleTailRender()
+    {
+        if (tailRenderPending.compareAndSet(false, true))
+        {
+            Platform.runLater(() ->
+            {
+                tailRenderPending.set(false);
+                renderTail();
+            });
+        }
+    }
+
+    // Shows the tailer's bounded line buffer, scrolled to the newest line
+    private void renderTail()
+    {
+        if (tailer == null)
+        {
+            return;
+        }
+
+        fileContent.setText(String.join("\n", tailer.snapshot()));
+        fileContent.positionCaret(fileContent.getLength());
+    }
+
+    // Stops follow mode, if active, and makes the text area editable again
+    private void stopFollowing()
+    {
+        if (tailer != null)
+        {
+            tailer.close();
+            tailer = null;
+            fileContent.setEditable(true);
+        }
+    }
+
+    // Drops the cached tree listing of the directory containing a changed entry and refreshes its node
+    private void reloadTree(String name)
+    {
+        Path parent = controller.getCurrentDirectory().resolve(name).normalize().getParent();
+        if (parent == null)
+        {
+            return;
+        }
+
+        treeLoader.release(parent);
+        TreeItem<FileItem> item = directoryTree.getRoot();
+        while (item instanceof DirectoryTreeItem && !item.getValue().getPath().equals(parent))
+        {
+            TreeItem<FileItem> next = null;
+            for (TreeItem<FileItem> child : item.getChildren())
+            {
+                if (parent.startsWith(child.getValue().getPath()))
+                {
+                    next = child;
+                    break;
+                }
+            }
+            item = next;
+        }
+        if (item instanceof DirectoryTreeItem)
+        {
+            ((DirectoryTreeItem) item).reload();
+        }
+    }
+
+    // Rebuilds the tree panel rooted at the current directory, dropping cached listings
+    private void resetDirectoryTree()
+    {
+        Path root = controller.getCurrentDirectory();
+        treeLoader.release(root);
+
+        try
+        {
+            DirectoryTreeItem rootItem = new DirectoryTreeItem(new FileItem(root), treeLoader);
+            directoryTree.setRoot(rootItem);
+            rootItem.setExpanded(true);
+        }
+        catch (Exception e)
+        {
+            setStatus("Error loading directory tree: " + e.getMessage());
+        }
+    }
+
+    // Digs the original exception out of CompletableFuture/unchecked wrappers
+    static Exception unwrap(Throwable error)
+    {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof UncheckedIOException)
+                && cause.getCause() != null)
+        {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception ? (Exception) cause : new Exception(cause);
+    }
+
     // Update status bar text
     private void setStatus(String status)
     {
@@ -0,0 +1,269 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.*;
+
+/**
+ * MemoryFileChannel - FileChannel over a file of a MemoryFileSystem.
+ *
+ * Supports everything except memory-mapping; locks are granted immediately since the data
+ * never leaves this process.
+ */
+public class MemoryFileChannel extends FileChannel
+{
+    private static final int TRANSFER_CHUNK = 64 * 1024;
+
+    private final MemoryFileSystem.FileNode file;
+    private final boolean readable;
+    private final boolean writable;
+    private final boolean append;
+    private long position;
+
+    MemoryFileChannel(MemoryFileSystem.FileNode file, boolean readable, boolean writable, boolean append)
+    {
+        this.file = file;
+        this.readable = readable;
+        this.writable = writable;
+        this.append = append;
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException
+    {
+        checkReadable();
+        int n = file.read(position, dst);
+        if (n > 0)
+        {
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public synchronized long read(ByteBuffer[] dsts, int offset, int length) throws IOException
+    {
+        checkReadable();
+        long total = 0;
+        for (int i = offset; i < offset + length; i++)
+        {
+            if (!dsts[i].hasRemaining())
+            {
+                continue;
+            }
+
+            int n = file.read(position, dsts[i]);
+            if (n < 0)
+            {
+                return total == 0 ? -1 : total;
+            }
+            position += n;
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException
+    {
+        checkWritable();
+        if (append)
+        {
+            position = file.size();
+        }
+
+        int n = file.write(position, src);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public synchronized long write(ByteBuffer[] srcs, int offset, int length) throws IOException
+    {
+        long total = 0;
+        for (int i = offset; i < offset + length; i++)
+        {
+            total += write(srcs[i]);
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized long position() throws IOException
+    {
+        checkOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized FileChannel position(long newPosition) throws IOException
+    {
+        checkOpen();
+        if (newPosition < 0)
+        {
+            throw new IllegalArgumentException("Negative position: " + newPosition);
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException
+    {
+        checkOpen();
+        return file.size();
+    }
+
+    @Override
+    public synchronized FileChannel truncate(long size) throws IOException
+    {
+        checkWritable();
+        if (size < 0)
+        {
+            throw new IllegalArgumentException("Negative size: " + size);
+        }
+
+        file.truncate(size);
+        position = Math.min(position, size);
+        return this;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException
+    {
+        // Nothing to flush: the data only ever lives in memory
+        checkOpen();
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException
+    {
+        checkReadable();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(TRANSFER_CHUNK, Math.max(1, count)));
+        long transferred = 0;
+        while (transferred < count)
+        {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), count - transferred));
+            int n = file.read(position + transferred, buffer);
+            if (n <= 0)
+            {
+                break;
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining())
+            {
+                target.write(buffer);
+            }
+            transferred += n;
+        }
+        return transferred;
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException
+    {
+        checkWritable();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(TRANSFER_CHUNK, Math.max(1, count)));
+        long transferred = 0;
+        while (transferred < count)
+        {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), count - transferred));
+            int n = src.read(buffer);
+            if (n <= 0)
+            {
+                break;
+            }
+
+            buffer.flip();
+            file.write(position + transferred, buffer);
+            transferred += n;
+        }
+        return transferred;
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException
+    {
+        checkReadable();
+        return file.read(position, dst);
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException
+    {
+        checkWritable();
+        return file.write(position, src);
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size)
+    {
+        throw new UnsupportedOperationException("Memory-mapping is not supported by the in-memory filesystem");
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException
+    {
+        checkOpen();
+        return newLock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException
+    {
+        checkOpen();
+        return newLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel()
+    {
+        // No resources beyond the shared file node
+    }
+
+    private FileLock newLock(long position, long size, boolean shared)
+    {
+        return new FileLock(this, position, size, shared)
+        {
+            private volatile boolean valid = true;
+
+            @Override
+            public boolean isValid()
+            {
+                return valid && channel().isOpen();
+            }
+
+            @Override
+            public void release()
+            {
+                valid = false;
+            }
+        };
+    }
+
+    private void checkOpen() throws ClosedChannelException
+    {
+        if (!isOpen())
+        {
+            throw new ClosedChannelException();
+        }
+    }
+
+    private void checkReadable() throws ClosedChannelException
+    {
+        checkOpen();
+        if (!readable)
+        {
+            throw new NonReadableChannelException();
+        }
+    }
+
+    private void checkWritable() throws ClosedChannelException
+    {
+        checkOpen();
+        if (!writable)
+        {
+            throw new NonWritableChannelException();
+        }
+    }
+}
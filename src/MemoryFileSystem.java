@@ -0,0 +1,807 @@
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * MemoryFileSystem - A java.nio.file.FileSystem that keeps all files and directories in RAM.
+ *
+ * Useful for scratch workspaces and for tests and benchmarks that should not depend on the disk.
+ * Directory structure is guarded by one read/write lock; file contents are guarded per file.
+ * Error behaviour follows the default filesystem (same exception types for missing files,
+ * existing targets, non-empty directories).
+ */
+public class MemoryFileSystem extends FileSystem
+{
+    private final MemoryFileSystemProvider provider;
+    private final String name;
+    private final MemoryPath root;
+    private final DirectoryNode rootNode;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong nextNodeId = new AtomicLong();
+    private volatile boolean open = true;
+
+    MemoryFileSystem(MemoryFileSystemProvider provider, String name)
+    {
+        this.provider = provider;
+        this.name = name;
+        this.root = new MemoryPath(this, true, new String[0]);
+        this.rootNode = new DirectoryNode(nextNodeId.incrementAndGet());
+    }
+
+    /**
+     * Creates a new, empty in-memory filesystem.
+     *
+     * @param name Name of the filesystem (the authority of its URIs); must be unique while open.
+     * @return The new filesystem.
+     * @throws IOException if a filesystem with that name is already open.
+     */
+    public static MemoryFileSystem create(String name) throws IOException
+    {
+        return (MemoryFileSystem) MemoryFileSystemProvider.instance()
+                .newFileSystem(URI.create(MemoryFileSystemProvider.SCHEME + "://" + name), Map.of());
+    }
+
+    /**
+     * Returns the name of this filesystem.
+     *
+     * @return The filesystem name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public FileSystemProvider provider()
+    {
+        return provider;
+    }
+
+    @Override
+    public void close()
+    {
+        if (open)
+        {
+            open = false;
+            provider.remove(this);
+        }
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return open;
+    }
+
+    @Override
+    public boolean isReadOnly()
+    {
+        return false;
+    }
+
+    @Override
+    public String getSeparator()
+    {
+        return "/";
+    }
+
+    @Override
+    public Iterable<Path> getRootDirectories()
+    {
+        return List.of(root);
+    }
+
+    @Override
+    public Iterable<FileStore> getFileStores()
+    {
+        return List.of();
+    }
+
+    @Override
+    public Set<String> supportedFileAttributeViews()
+    {
+        return Set.of("basic");
+    }
+
+    @Override
+    public Path getPath(String first, String... more)
+    {
+        if (more.length == 0)
+        {
+            return MemoryPath.parse(this, first);
+        }
+
+        StringBuilder joined = new StringBuilder(first);
+        for (String segment : more)
+        {
+            if (!segment.isEmpty())
+            {
+                if (joined.length() > 0)
+                {
+                    joined.append('/');
+                }
+                joined.append(segment);
+            }
+        }
+        return MemoryPath.parse(this, joined.toString());
+    }
+
+    @Override
+    public PathMatcher getPathMatcher(String syntaxAndPattern)
+    {
+        int colon = syntaxAndPattern.indexOf(':');
+        if (colon <= 0)
+        {
+            throw new IllegalArgumentException("Expected syntax:pattern, got: " + syntaxAndPattern);
+        }
+
+        String syntax = syntaxAndPattern.substring(0, colon);
+        String pattern = syntaxAndPattern.substring(colon + 1);
+        Pattern regex;
+        if (syntax.equalsIgnoreCase("regex"))
+        {
+            regex = Pattern.compile(pattern);
+        }
+        else if (syntax.equalsIgnoreCase("glob"))
+        {
+            regex = Pattern.compile(globToRegex(pattern));
+        }
+        else
+        {
+            throw new UnsupportedOperationException("Syntax '" + syntax + "' not recognized");
+        }
+        return path -> regex.matcher(path.toString()).matches();
+    }
+
+    @Override
+    public UserPrincipalLookupService getUserPrincipalLookupService()
+    {
+        throw new UnsupportedOperationException("User principals are not supported by the in-memory filesystem");
+    }
+
+    @Override
+    public WatchService newWatchService()
+    {
+        throw new UnsupportedOperationException("Watching is not supported by the in-memory filesystem");
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Operations used by MemoryFileSystemProvider
+    // ---------------------------------------------------------------------------------------
+
+    MemoryPath root()
+    {
+        return root;
+    }
+
+    // Opens (and optionally creates or truncates) a regular file
+    MemoryFileChannel open(MemoryPath path, Set<? extends OpenOption> options) throws IOException
+    {
+        boolean append = options.contains(StandardOpenOption.APPEND);
+        boolean write = append || options.contains(StandardOpenOption.WRITE);
+        boolean read = options.contains(StandardOpenOption.READ) || !write;
+        if (append && options.contains(StandardOpenOption.READ))
+        {
+            throw new IllegalArgumentException("READ + APPEND not allowed");
+        }
+        if (append && options.contains(StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            throw new IllegalArgumentException("APPEND + TRUNCATE_EXISTING not allowed");
+        }
+
+        boolean createNew = write && options.contains(StandardOpenOption.CREATE_NEW);
+        boolean create = write && (createNew || options.contains(StandardOpenOption.CREATE));
+
+        FileNode file;
+        if (create)
+        {
+            file = createFile(path, createNew);
+        }
+        else
+        {
+            Node node;
+            lock.readLock().lock();
+            try
+            {
+                node = lookupOrThrow(path);
+            }
+            finally
+            {
+                lock.readLock().unlock();
+            }
+
+            if (node instanceof DirectoryNode)
+            {
+                // Like the disk: opening a directory for writing fails, reading it fails with a plain IOException
+                if (write)
+                {
+                    throw new FileSystemException(path.toString(), null, "Is a directory");
+                }
+                throw new IOException("Is a directory");
+            }
+            file = (FileNode) node;
+        }
+
+        if (write && options.contains(StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            file.truncate(0);
+        }
+        return new MemoryFileChannel(file, read, write, append);
+    }
+
+    // Returns the existing file, or links a new one into its parent directory
+    private FileNode createFile(MemoryPath path, boolean createNew) throws IOException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            DirectoryNode parent = parentOrThrow(path);
+            String fileName = fileName(path);
+            Node existing = parent.entries.get(fileName);
+            if (existing != null)
+            {
+                if (createNew)
+                {
+                    throw new FileAlreadyExistsException(path.toString());
+                }
+                if (existing instanceof DirectoryNode)
+                {
+                    throw new FileSystemException(path.toString(), null, "Is a directory");
+                }
+                return (FileNode) existing;
+            }
+
+            FileNode file = new FileNode(nextNodeId.incrementAndGet());
+            parent.link(fileName, file);
+            return file;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Snapshot of the entry names of a directory
+    List<String> list(MemoryPath directory) throws IOException
+    {
+        lock.readLock().lock();
+        try
+        {
+            Node node = lookupOrThrow(directory);
+            if (!(node instanceof DirectoryNode))
+            {
+                throw new NotDirectoryException(directory.toString());
+            }
+            return new ArrayList<>(((DirectoryNode) node).entries.keySet());
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    void createDirectory(MemoryPath path) throws IOException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if (path.toAbsolutePath().getNameCount() == 0)
+            {
+                throw new FileAlreadyExistsException(path.toString());
+            }
+
+            DirectoryNode parent = parentOrThrow(path);
+            String fileName = fileName(path);
+            if (parent.entries.containsKey(fileName))
+            {
+                throw new FileAlreadyExistsException(path.toString());
+            }
+            parent.link(fileName, new DirectoryNode(nextNodeId.incrementAndGet()));
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void delete(MemoryPath path) throws IOException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if (path.toAbsolutePath().getNameCount() == 0)
+            {
+                throw new FileSystemException(path.toString(), null, "Cannot delete the root directory");
+            }
+
+            DirectoryNode parent = parentOrThrow(path);
+            String fileName = fileName(path);
+            Node node = parent.entries.get(fileName);
+            if (node == null)
+            {
+                throw new NoSuchFileException(path.toString());
+            }
+            if (node instanceof DirectoryNode && !((DirectoryNode) node).entries.isEmpty())
+            {
+                throw new DirectoryNotEmptyException(path.toString());
+            }
+            parent.unlink(fileName);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Copies a file (or creates an empty directory for a directory, like Files.copy)
+    void copy(MemoryPath source, MemoryPath target, Set<CopyOption> options) throws IOException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Node node = lookupOrThrow(source);
+            if (source.toAbsolutePath().normalize().equals(target.toAbsolutePath().normalize()))
+            {
+                return;
+            }
+
+            DirectoryNode targetParent = prepareTarget(target, options);
+            Node copy = node instanceof DirectoryNode
+                    ? new DirectoryNode(nextNodeId.incrementAndGet())
+                    : ((FileNode) node).copy(nextNodeId.incrementAndGet());
+            if (options.contains(StandardCopyOption.COPY_ATTRIBUTES))
+            {
+                copy.setTimes(node.lastModifiedTime, node.lastAccessTime, node.creationTime);
+            }
+            targetParent.link(fileName(target), copy);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Moves a file or a whole directory tree by relinking it under its new name
+    void move(MemoryPath source, MemoryPath target, Set<CopyOption> options) throws IOException
+    {
+        lock.writeLock().lock();
+        try
+        {
+            MemoryPath from = (MemoryPath) source.toAbsolutePath().normalize();
+            MemoryPath to = (MemoryPath) target.toAbsolutePath().normalize();
+            Node node = lookupOrThrow(from);
+            if (from.equals(to))
+            {
+                return;
+            }
+            if (from.getNameCount() == 0)
+            {
+                throw new FileSystemException(source.toString(), target.toString(), "Cannot move the root directory");
+            }
+            if (node instanceof DirectoryNode && to.startsWith(from))
+            {
+                throw new FileSystemException(source.toString(), target.toString(), "Invalid argument");
+            }
+
+            DirectoryNode targetParent = prepareTarget(to, options);
+            parentOrThrow(from).unlink(fileName(from));
+            targetParent.link(fileName(to), node);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Checks that the target may be written, removing it when REPLACE_EXISTING allows; caller holds the write lock
+    private DirectoryNode prepareTarget(MemoryPath target, Set<CopyOption> options) throws IOException
+    {
+        DirectoryNode parent = parentOrThrow(target);
+        String fileName = fileName(target);
+        Node existing = parent.entries.get(fileName);
+        if (existing != null)
+        {
+            if (!options.contains(StandardCopyOption.REPLACE_EXISTING))
+            {
+                throw new FileAlreadyExistsException(target.toString());
+            }
+            if (existing instanceof DirectoryNode && !((DirectoryNode) existing).entries.isEmpty())
+            {
+                throw new DirectoryNotEmptyException(target.toString());
+            }
+            parent.unlink(fileName);
+        }
+        return parent;
+    }
+
+    boolean isSameFile(MemoryPath first, MemoryPath second) throws IOException
+    {
+        lock.readLock().lock();
+        try
+        {
+            return lookupOrThrow(first) == lookupOrThrow(second);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Throws NoSuchFileException if nothing exists at the path
+    void checkExists(MemoryPath path) throws IOException
+    {
+        lock.readLock().lock();
+        try
+        {
+            lookupOrThrow(path);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    BasicFileAttributes readAttributes(MemoryPath path) throws IOException
+    {
+        lock.readLock().lock();
+        try
+        {
+            return lookupOrThrow(path).attributes();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    void setTimes(MemoryPath path, FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime)
+            throws IOException
+    {
+        lock.readLock().lock();
+        try
+        {
+            lookupOrThrow(path).setTimes(lastModifiedTime, lastAccessTime, createTime);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Resolves a path to its node; caller holds a lock
+    private Node lookupOrThrow(MemoryPath path) throws NoSuchFileException
+    {
+        checkOpen();
+
+        Node node = rootNode;
+        for (String name : ((MemoryPath) path.toAbsolutePath().normalize()).names())
+        {
+            if (!(node instanceof DirectoryNode))
+            {
+                throw new NoSuchFileException(path.toString());
+            }
+            node = ((DirectoryNode) node).entries.get(name);
+            if (node == null)
+            {
+                throw new NoSuchFileException(path.toString());
+            }
+        }
+        return node;
+    }
+
+    // Resolves the directory that contains the path; caller holds a lock
+    private DirectoryNode parentOrThrow(MemoryPath path) throws NoSuchFileException
+    {
+        Path parent = path.toAbsolutePath().normalize().getParent();
+        Node node = parent == null ? rootNode : lookupOrThrow((MemoryPath) parent);
+        if (!(node instanceof DirectoryNode))
+        {
+            throw new NoSuchFileException(path.toString());
+        }
+        return (DirectoryNode) node;
+    }
+
+    private static String fileName(MemoryPath path) throws FileSystemException
+    {
+        Path fileName = path.toAbsolutePath().normalize().getFileName();
+        if (fileName == null)
+        {
+            throw new FileSystemException(path.toString(), null, "Is the root directory");
+        }
+        return fileName.toString();
+    }
+
+    private void checkOpen()
+    {
+        if (!open)
+        {
+            throw new ClosedFileSystemException();
+        }
+    }
+
+    // Translates the common glob constructs (*, **, ?, [..], {a,b}) to a regex
+    private static String globToRegex(String glob)
+    {
+        StringBuilder regex = new StringBuilder();
+        boolean inGroup = false;
+        for (int i = 0; i < glob.length(); i++)
+        {
+            char c = glob.charAt(i);
+            switch (c)
+            {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*')
+                    {
+                        regex.append(".*");
+                        i++;
+                    }
+                    else
+                    {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '{':
+                    regex.append("(?:");
+                    inGroup = true;
+                    break;
+                case '}':
+                    regex.append(')');
+                    inGroup = false;
+                    break;
+                case ',':
+                    regex.append(inGroup ? "|" : ",");
+                    break;
+                case '[':
+                case ']':
+                    regex.append(c);
+                    break;
+                case '\\':
+                    if (i + 1 < glob.length())
+                    {
+                        regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+                    }
+                    break;
+                default:
+                    regex.append(Character.isLetterOrDigit(c) ? String.valueOf(c) : Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+    // ---------------------------------------------------------------------------------------
+    // Nodes
+    // ---------------------------------------------------------------------------------------
+
+    abstract static class Node
+    {
+        final long id;
+        volatile FileTime creationTime;
+        volatile FileTime lastModifiedTime;
+        volatile FileTime lastAccessTime;
+
+        Node(long id)
+        {
+            this.id = id;
+            FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+            this.creationTime = now;
+            this.lastModifiedTime = now;
+            this.lastAccessTime = now;
+        }
+
+        void touch()
+        {
+            lastModifiedTime = FileTime.fromMillis(System.currentTimeMillis());
+        }
+
+        void setTimes(FileTime modified, FileTime accessed, FileTime created)
+        {
+            if (modified != null)
+            {
+                lastModifiedTime = modified;
+            }
+            if (accessed != null)
+            {
+                lastAccessTime = accessed;
+            }
+            if (created != null)
+            {
+                creationTime = created;
+            }
+        }
+
+        abstract long size();
+
+        BasicFileAttributes attributes()
+        {
+            return new Attributes(this, size());
+        }
+    }
+
+    static final class DirectoryNode extends Node
+    {
+        final Map<String, Node> entries = new HashMap<>();
+
+        DirectoryNode(long id)
+        {
+            super(id);
+        }
+
+        void link(String name, Node node)
+        {
+            entries.put(name, node);
+            touch();
+        }
+
+        void unlink(String name)
+        {
+            entries.remove(name);
+            touch();
+        }
+
+        @Override
+        long size()
+        {
+            return 0L;
+        }
+    }
+
+    static final class FileNode extends Node
+    {
+        private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+        private static final byte[] EMPTY = new byte[0];
+
+        private byte[] data = EMPTY;
+        private int size;
+
+        FileNode(long id)
+        {
+            super(id);
+        }
+
+        @Override
+        synchronized long size()
+        {
+            return size;
+        }
+
+        synchronized FileNode copy(long id)
+        {
+            FileNode copy = new FileNode(id);
+            copy.data = Arrays.copyOf(data, size);
+            copy.size = size;
+            return copy;
+        }
+
+        // Copies bytes starting at position into dst; -1 at end of file
+        synchronized int read(long position, ByteBuffer dst)
+        {
+            if (position >= size)
+            {
+                return -1;
+            }
+
+            int n = (int) Math.min(dst.remaining(), size - position);
+            dst.put(data, (int) position, n);
+            return n;
+        }
+
+        // Writes src at position, growing (and zero-filling any gap) as needed
+        synchronized int write(long position, ByteBuffer src) throws IOException
+        {
+            int n = src.remaining();
+            long end = position + n;
+            if (end > MAX_SIZE)
+            {
+                throw new IOException("File too large for the in-memory filesystem");
+            }
+
+            if (end > data.length)
+            {
+                data = Arrays.copyOf(data, (int) Math.min(MAX_SIZE, Math.max(end, data.length * 2L)));
+            }
+            if (position > size)
+            {
+                Arrays.fill(data, size, (int) position, (byte) 0);
+            }
+
+            src.get(data, (int) position, n);
+            size = (int) Math.max(size, end);
+            touch();
+            return n;
+        }
+
+        synchronized void truncate(long newSize)
+        {
+            if (newSize < size)
+            {
+                size = (int) newSize;
+                touch();
+            }
+        }
+    }
+
+    private static final class Attributes implements BasicFileAttributes
+    {
+        private final Node node;
+        private final long size;
+        private final FileTime lastModifiedTime;
+        private final FileTime lastAccessTime;
+        private final FileTime creationTime;
+
+        Attributes(Node node, long size)
+        {
+            this.node = node;
+            this.size = size;
+            this.lastModifiedTime = node.lastModifiedTime;
+            this.lastAccessTime = node.lastAccessTime;
+            this.creationTime = node.creationTime;
+        }
+
+        @Override
+        public FileTime lastModifiedTime()
+        {
+            return lastModifiedTime;
+        }
+
+        @Override
+        public FileTime lastAccessTime()
+        {
+            return lastAccessTime;
+        }
+
+        @Override
+        public FileTime creationTime()
+        {
+            return creationTime;
+        }
+
+        @Override
+        public boolean isRegularFile()
+        {
+            return node instanceof FileNode;
+        }
+
+        @Override
+        public boolean isDirectory()
+        {
+            return node instanceof DirectoryNode;
+        }
+
+        @Override
+        public boolean isSymbolicLink()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isOther()
+        {
+            return false;
+        }
+
+        @Override
+        public long size()
+        {
+            return size;
+        }
+
+        @Override
+        public Object fileKey()
+        {
+            return node.id;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MemoryFileSystemProvider - Provider for MemoryFileSystem instances (URI scheme "memory").
+ *
+ * Filesystems are created with MemoryFileSystem.create(name) and addressed as memory://name/path.
+ */
+public class MemoryFileSystemProvider extends FileSystemProvider
+{
+    public static final String SCHEME = "memory";
+
+    private static final MemoryFileSystemProvider INSTANCE = new MemoryFileSystemProvider();
+
+    private final Map<String, MemoryFileSystem> fileSystems = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the shared provider instance.
+     *
+     * @return The provider.
+     */
+    public static MemoryFileSystemProvider instance()
+    {
+        return INSTANCE;
+    }
+
+    @Override
+    public String getScheme()
+    {
+        return SCHEME;
+    }
+
+    @Override
+    public FileSystem newFileSystem(URI uri, Map<String, ?> env) throws IOException
+    {
+        String name = nameOf(uri);
+        MemoryFileSystem fileSystem = new MemoryFileSystem(this, name);
+        if (fileSystems.putIfAbsent(name, fileSystem) != null)
+        {
+            throw new FileSystemAlreadyExistsException(name);
+        }
+        return fileSystem;
+    }
+
+    @Override
+    public FileSystem getFileSystem(URI uri)
+    {
+        MemoryFileSystem fileSystem = fileSystems.get(nameOf(uri));
+        if (fileSystem == null)
+        {
+            throw new FileSystemNotFoundException(uri.toString());
+        }
+        return fileSystem;
+    }
+
+    @Override
+    public Path getPath(URI uri)
+    {
+        return getFileSystem(uri).getPath(uri.getPath());
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options,
+                                              FileAttribute<?>... attrs) throws IOException
+    {
+        MemoryPath memoryPath = check(path);
+        return memoryPath.getFileSystem().open(memoryPath, options);
+    }
+
+    @Override
+    public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options,
+                                      FileAttribute<?>... attrs) throws IOException
+    {
+        MemoryPath memoryPath = check(path);
+        return memoryPath.getFileSystem().open(memoryPath, options);
+    }
+
+    @Override
+    public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter)
+            throws IOException
+    {
+        MemoryPath directory = check(dir);
+        List<String> names = directory.getFileSystem().list(directory);
+
+        return new DirectoryStream<>()
+        {
+            private boolean iterated;
+
+            @Override
+            public Iterator<Path> iterator()
+            {
+                if (iterated)
+                {
+                    throw new IllegalStateException("Iterator already obtained");
+                }
+                iterated = true;
+
+                List<Path> entries = new ArrayList<>(names.size());
+                for (String name : names)
+                {
+                    Path entry = directory.resolve(name);
+                    try
+                    {
+                        if (filter == null || filter.accept(entry))
+                        {
+                            entries.add(entry);
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        throw new DirectoryIteratorException(e);
+                    }
+                }
+                return entries.iterator();
+            }
+
+            @Override
+            public void close()
+            {
+                // Entries were snapshotted when the stream was opened
+            }
+        };
+    }
+
+    @Override
+    public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException
+    {
+        MemoryPath path = check(dir);
+        path.getFileSystem().createDirectory(path);
+    }
+
+    @Override
+    public void delete(Path path) throws IOException
+    {
+        MemoryPath memoryPath = check(path);
+        memoryPath.getFileSystem().delete(memoryPath);
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyOption... options) throws IOException
+    {
+        MemoryPath from = check(source);
+        from.getFileSystem().copy(from, checkSameFileSystem(from, target), new HashSet<>(Arrays.asList(options)));
+    }
+
+    @Override
+    public void move(Path source, Path target, CopyOption... options) throws IOException
+    {
+        MemoryPath from = check(source);
+        from.getFileSystem().move(from, checkSameFileSystem(from, target), new HashSet<>(Arrays.asList(options)));
+    }
+
+    @Override
+    public boolean isSameFile(Path path, Path path2) throws IOException
+    {
+        MemoryPath first = check(path);
+        if (first.equals(path2))
+        {
+            return true;
+        }
+        if (!(path2 instanceof MemoryPath) || ((MemoryPath) path2).getFileSystem() != first.getFileSystem())
+        {
+            return false;
+        }
+        return first.getFileSystem().isSameFile(first, (MemoryPath) path2);
+    }
+
+    @Override
+    public boolean isHidden(Path path)
+    {
+        Path fileName = check(path).getFileName();
+        return fileName != null && fileName.toString().startsWith(".");
+    }
+
+    @Override
+    public FileStore getFileStore(Path path)
+    {
+        throw new UnsupportedOperationException("File stores are not supported by the in-memory filesystem");
+    }
+
+    @Override
+    public void checkAccess(Path path, AccessMode... modes) throws IOException
+    {
+        // Everything that exists is readable and writable
+        MemoryPath memoryPath = check(path);
+        memoryPath.getFileSystem().checkExists(memoryPath);
+    }
+
+    @Override
+    public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options)
+    {
+        MemoryPath memoryPath = check(path);
+        if (type != BasicFileAttributeView.class)
+        {
+            return null;
+        }
+
+        return type.cast(new BasicFileAttributeView()
+        {
+            @Override
+            public String name()
+            {
+                return "basic";
+            }
+
+            @Override
+            public BasicFileAttributes readAttributes() throws IOException
+            {
+                return memoryPath.getFileSystem().readAttributes(memoryPath);
+            }
+
+            @Override
+            public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime)
+                    throws IOException
+            {
+                memoryPath.getFileSystem().setTimes(memoryPath, lastModifiedTime, lastAccessTime, createTime);
+            }
+        });
+    }
+
+    @Override
+    public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options)
+            throws IOException
+    {
+        if (type != BasicFileAttributes.class)
+        {
+            throw new UnsupportedOperationException("Only BasicFileAttributes are supported: " + type.getName());
+        }
+
+        MemoryPath memoryPath = check(path);
+        return type.cast(memoryPath.getFileSystem().readAttributes(memoryPath));
+    }
+
+    @Override
+    public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options)
+            throws IOException
+    {
+        String names = attributes;
+        int colon = attributes.indexOf(':');
+        if (colon >= 0)
+        {
+            if (!attributes.substring(0, colon).equals("basic"))
+            {
+                throw new UnsupportedOperationException("View not available: " + attributes.substring(0, colon));
+            }
+            names = attributes.substring(colon + 1);
+        }
+
+        MemoryPath memoryPath = check(path);
+        BasicFileAttributes attrs = memoryPath.getFileSystem().readAttributes(memoryPath);
+        Map<String, Object> all = new LinkedHashMap<>();
+        all.put("lastModifiedTime", attrs.lastModifiedTime());
+        all.put("lastAccessTime", attrs.lastAccessTime());
+        all.put("creationTime", attrs.creationTime());
+        all.put("size", attrs.size());
+        all.put("isRegularFile", attrs.isRegularFile());
+        all.put("isDirectory", attrs.isDirectory());
+        all.put("isSymbolicLink", attrs.isSymbolicLink());
+        all.put("isOther", attrs.isOther());
+        all.put("fileKey", attrs.fileKey());
+
+        if (names.equals("*"))
+        {
+            return all;
+        }
+
+        Map<String, Object> selected = new LinkedHashMap<>();
+        for (String name : names.split(","))
+        {
+            if (!all.containsKey(name))
+            {
+                throw new IllegalArgumentException("'" + name + "' not recognized");
+            }
+            selected.put(name, all.get(name));
+        }
+        return selected;
+    }
+
+    @Override
+    public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException
+    {
+        String name = attribute.startsWith("basic:") ? attribute.substring("basic:".length()) : attribute;
+        MemoryPath memoryPath = check(path);
+        MemoryFileSystem fileSystem = memoryPath.getFileSystem();
+
+        switch (name)
+        {
+            case "lastModifiedTime":
+                fileSystem.setTimes(memoryPath, (FileTime) value, null, null);
+                break;
+            case "lastAccessTime":
+                fileSystem.setTimes(memoryPath, null, (FileTime) value, null);
+                break;
+            case "creationTime":
+                fileSystem.setTimes(memoryPath, null, null, (FileTime) value);
+                break;
+            default:
+                throw new UnsupportedOperationException("Attribute not supported: " + attribute);
+        }
+    }
+
+    // Forgets a closed filesystem so its name can be reused
+    void remove(MemoryFileSystem fileSystem)
+    {
+        fileSystems.remove(fileSystem.getName(), fileSystem);
+    }
+
+    private static String nameOf(URI uri)
+    {
+        if (!SCHEME.equalsIgnoreCase(uri.getScheme()) || uri.getAuthority() == null)
+        {
+            throw new IllegalArgumentException("Expected memory://<name>, got: " + uri);
+        }
+        return uri.getAuthority();
+    }
+
+    private static MemoryPath check(Path path)
+    {
+        if (!(path instanceof MemoryPath))
+        {
+            throw new ProviderMismatchException();
+        }
+        return (MemoryPath) path;
+    }
+
+    private static MemoryPath checkSameFileSystem(MemoryPath source, Path target)
+    {
+        MemoryPath memoryTarget = check(target);
+        if (memoryTarget.getFileSystem() != source.getFileSystem())
+        {
+            throw new ProviderMismatchException("Source and target are on different memory filesystems");
+        }
+        return memoryTarget;
+    }
+}
@@ -0,0 +1,310 @@
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MemoryPath - Path on a MemoryFileSystem. Uses "/" as separator, like Unix paths.
+ */
+public final class MemoryPath implements Path
+{
+    private final MemoryFileSystem fileSystem;
+    private final boolean absolute;
+    private final String[] names;
+    private final String text;
+
+    // Builds a path from already split, non-empty names
+    MemoryPath(MemoryFileSystem fileSystem, boolean absolute, String[] names)
+    {
+        this.fileSystem = fileSystem;
+        this.absolute = absolute;
+        this.names = names;
+        this.text = (absolute ? "/" : "") + String.join("/", names);
+    }
+
+    // Parses a path string, ignoring repeated and trailing separators
+    static MemoryPath parse(MemoryFileSystem fileSystem, String path)
+    {
+        if (path.indexOf('\0') >= 0)
+        {
+            throw new InvalidPathException(path, "Nul character not allowed");
+        }
+
+        List<String> names = new ArrayList<>();
+        for (String name : path.split("/"))
+        {
+            if (!name.isEmpty())
+            {
+                names.add(name);
+            }
+        }
+        return new MemoryPath(fileSystem, path.startsWith("/"), names.toArray(new String[0]));
+    }
+
+    // Names of this path, shared with the caller; must not be modified
+    String[] names()
+    {
+        return names;
+    }
+
+    @Override
+    public MemoryFileSystem getFileSystem()
+    {
+        return fileSystem;
+    }
+
+    @Override
+    public boolean isAbsolute()
+    {
+        return absolute;
+    }
+
+    @Override
+    public Path getRoot()
+    {
+        return absolute ? fileSystem.root() : null;
+    }
+
+    @Override
+    public Path getFileName()
+    {
+        if (names.length == 0)
+        {
+            return absolute ? null : this;
+        }
+        return names.length == 1 && !absolute ? this : new MemoryPath(fileSystem, false, new String[] { names[names.length - 1] });
+    }
+
+    @Override
+    public Path getParent()
+    {
+        if (names.length == 0 || (names.length == 1 && !absolute))
+        {
+            return null;
+        }
+        return new MemoryPath(fileSystem, absolute, Arrays.copyOf(names, names.length - 1));
+    }
+
+    @Override
+    public int getNameCount()
+    {
+        return names.length;
+    }
+
+    @Override
+    public Path getName(int index)
+    {
+        if (index < 0 || index >= names.length)
+        {
+            throw new IllegalArgumentException("Invalid name index: " + index);
+        }
+        return new MemoryPath(fileSystem, false, new String[] { names[index] });
+    }
+
+    @Override
+    public Path subpath(int beginIndex, int endIndex)
+    {
+        if (beginIndex < 0 || endIndex > names.length || beginIndex >= endIndex)
+        {
+            throw new IllegalArgumentException("Invalid subpath: " + beginIndex + ".." + endIndex);
+        }
+        return new MemoryPath(fileSystem, false, Arrays.copyOfRange(names, beginIndex, endIndex));
+    }
+
+    @Override
+    public boolean startsWith(Path other)
+    {
+        if (!(other instanceof MemoryPath))
+        {
+            return false;
+        }
+
+        MemoryPath that = (MemoryPath) other;
+        if (that.fileSystem != fileSystem || that.absolute != absolute || that.names.length > names.length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < that.names.length; i++)
+        {
+            if (!names[i].equals(that.names[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endsWith(Path other)
+    {
+        if (!(other instanceof MemoryPath))
+        {
+            return false;
+        }
+
+        MemoryPath that = (MemoryPath) other;
+        if (that.fileSystem != fileSystem || that.names.length > names.length)
+        {
+            return false;
+        }
+        if (that.absolute)
+        {
+            return equals(that);
+        }
+
+        int offset = names.length - that.names.length;
+        for (int i = 0; i < that.names.length; i++)
+        {
+            if (!names[offset + i].equals(that.names[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Path normalize()
+    {
+        List<String> result = new ArrayList<>(names.length);
+        for (String name : names)
+        {
+            if (name.equals("."))
+            {
+                continue;
+            }
+
+            if (name.equals(".."))
+            {
+                if (!result.isEmpty() && !result.get(result.size() - 1).equals(".."))
+                {
+                    result.remove(result.size() - 1);
+                    continue;
+                }
+                if (absolute)
+                {
+                    // ".." at the root stays at the root
+                    continue;
+                }
+            }
+            result.add(name);
+        }
+
+        return result.size() == names.length ? this : new MemoryPath(fileSystem, absolute, result.toArray(new String[0]));
+    }
+
+    @Override
+    public Path resolve(Path other)
+    {
+        MemoryPath that = checkPath(other);
+        if (that.absolute)
+        {
+            return that;
+        }
+        if (that.names.length == 0)
+        {
+            return this;
+        }
+
+        String[] joined = Arrays.copyOf(names, names.length + that.names.length);
+        System.arraycopy(that.names, 0, joined, names.length, that.names.length);
+        return new MemoryPath(fileSystem, absolute, joined);
+    }
+
+    @Override
+    public Path relativize(Path other)
+    {
+        MemoryPath that = checkPath(other);
+        if (that.absolute != absolute)
+        {
+            throw new IllegalArgumentException("'other' is different type of Path");
+        }
+
+        int common = 0;
+        while (common < names.length && common < that.names.length && names[common].equals(that.names[common]))
+        {
+            common++;
+        }
+
+        List<String> result = new ArrayList<>();
+        for (int i = common; i < names.length; i++)
+        {
+            result.add("..");
+        }
+        result.addAll(Arrays.asList(that.names).subList(common, that.names.length));
+        return new MemoryPath(fileSystem, false, result.toArray(new String[0]));
+    }
+
+    @Override
+    public URI toUri()
+    {
+        try
+        {
+            return new URI(MemoryFileSystemProvider.SCHEME, fileSystem.getName(), toAbsolutePath().toString(), null);
+        }
+        catch (URISyntaxException e)
+        {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    public Path toAbsolutePath()
+    {
+        // The working directory of a memory filesystem is always its root
+        return absolute ? this : fileSystem.root().resolve(this);
+    }
+
+    @Override
+    public Path toRealPath(LinkOption... options) throws java.io.IOException
+    {
+        Path real = toAbsolutePath().normalize();
+        fileSystem.provider().checkAccess(real);
+        return real;
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers)
+    {
+        throw new UnsupportedOperationException("Watching is not supported by the in-memory filesystem");
+    }
+
+    @Override
+    public int compareTo(Path other)
+    {
+        return text.compareTo(((MemoryPath) other).text);
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        return other instanceof MemoryPath
+                && ((MemoryPath) other).fileSystem == fileSystem
+                && ((MemoryPath) other).text.equals(text);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return text.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return text;
+    }
+
+    // Only paths from the same memory filesystem can be combined
+    private MemoryPath checkPath(Path other)
+    {
+        if (!(other instanceof MemoryPath) || ((MemoryPath) other).fileSystem != fileSystem)
+        {
+            throw new ProviderMismatchException();
+        }
+        return (MemoryPath) other;
+    }
+}
@@ -0,0 +1,92 @@
+import javafx.application.Platform;
+import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.VBox;
+import java.nio.file.Path;
+
+/**
+ * NavigateDialog - Asks for a folder to navigate to, suggesting directories as the user types.
+ */
+public class NavigateDialog extends Dialog<String>
+{
+    private final TextField pathField = new TextField();
+    private final ListView<String> suggestions = new ListView<>();
+    private final PathCompleter completer;
+    private final Path currentDirectory;
+
+    /**
+     * Constructs a NavigateDialog.
+     *
+     * @param completer        Source of suggestions.
+     * @param currentDirectory Directory relative input is resolved against.
+     */
+    public NavigateDialog(PathCompleter completer, Path currentDirectory)
+    {
+        this.completer = completer;
+        this.currentDirectory = currentDirectory;
+
+        setTitle("Navigate");
+        setHeaderText("Enter folder name:");
+        getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        suggestions.setPrefHeight(180);
+        getDialogPane().setContent(new VBox(8, pathField, suggestions));
+
+        pathField.textProperty().addListener((obs, old, text) -> requestSuggestions(text));
+
+        // Down arrow moves from the text field into the suggestion list
+        pathField.addEventFilter(KeyEvent.KEY_PRESSED, e ->
+        {
+            if (e.getCode() == KeyCode.DOWN && !suggestions.getItems().isEmpty())
+            {
+                suggestions.requestFocus();
+                suggestions.getSelectionModel().selectFirst();
+                e.consume();
+            }
+        });
+
+        // Enter or a click takes the suggestion instead of closing the dialog
+        suggestions.addEventFilter(KeyEvent.KEY_PRESSED, e ->
+        {
+            if (e.getCode() == KeyCode.ENTER)
+            {
+                acceptSuggestion();
+                e.consume();
+            }
+        });
+        suggestions.addEventHandler(MouseEvent.MOUSE_CLICKED, e -> acceptSuggestion());
+
+        setResultConverter(button -> button == ButtonType.OK ? pathField.getText() : null);
+
+        Platform.runLater(pathField::requestFocus);
+        requestSuggestions("");
+    }
+
+    // Asks the completer for suggestions; results for outdated text are ignored
+    private void requestSuggestions(String text)
+    {
+        completer.complete(currentDirectory, text, result -> Platform.runLater(() ->
+        {
+            if (text.equals(pathField.getText()))
+            {
+                suggestions.getItems().setAll(result);
+            }
+        }));
+    }
+
+    // Copies the selected suggestion into the text field, ready for the next path segment
+    private void acceptSuggestion()
+    {
+        String selected = suggestions.getSelectionModel().getSelectedItem();
+        if (selected == null)
+        {
+            return;
+        }
+
+        pathField.setText(selected + currentDirectory.getFileSystem().getSeparator());
+        pathField.requestFocus();
+        pathField.end();
+    }
+}
@@ -0,0 +1,182 @@
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * PathCompleter - Suggests directories for a partially typed path.
+ *
+ * Suggestions come from a DirectoryTrie of recently listed directories. Directories are listed
+ * and added lazily on a single background thread, which also answers the queries, so typing
+ * never waits on the filesystem. A listing older than REFRESH_MILLIS is taken again, replacing
+ * what the trie remembered of that directory.
+ */
+public class PathCompleter
+{
+    private static final int TRIE_CAPACITY = 20_000;
+    private static final int MAX_SUGGESTIONS = 10;
+    private static final long REFRESH_MILLIS = 30_000;
+    private static final int INDEXED_CAPACITY = 2_000;
+
+    private final FileManager fileManager;
+    private final DirectoryTrie trie = new DirectoryTrie(TRIE_CAPACITY);
+    // When each directory was last listed, least recently used first; only touched on the executor thread
+    private final Map<Path, Long> indexed = new LinkedHashMap<>(64, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Long> eldest)
+        {
+            return size() > INDEXED_CAPACITY;
+        }
+    };
+    private final AtomicLong latestRequest = new AtomicLong();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable ->
+    {
+        Thread thread = new Thread(runnable, "path-completer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs a PathCompleter backed by the given FileManager.
+     *
+     * @param fileManager Used to list directories that haven't been seen yet.
+     */
+    public PathCompleter(FileManager fileManager)
+    {
+        this.fileManager = fileManager;
+    }
+
+    /**
+     * Remembers the subdirectories of a directory that was just listed elsewhere.
+     *
+     * @param directory The listed directory.
+     * @param items     Its contents.
+     */
+    public void remember(Path directory, List<FileItem> items)
+    {
+        List<Path> directories = new ArrayList<>();
+        for (FileItem item : items)
+        {
+            if (item.isDirectory())
+            {
+                directories.add(item.getPath());
+            }
+        }
+
+        executor.execute(() ->
+        {
+            replace(directory, directories);
+            indexed.put(directory, System.currentTimeMillis());
+        });
+    }
+
+    /**
+     * Computes suggestions for typed text in the background. Requests superseded by a newer
+     * one before they start are skipped.
+     *
+     * @param currentDirectory Directory relative paths are resolved against.
+     * @param typed            The text typed so far.
+     * @param callback         Receives the suggestions (called from the background thread).
+     */
+    public void complete(Path currentDirectory, String typed, Consumer<List<String>> callback)
+    {
+        long request = latestRequest.incrementAndGet();
+        executor.execute(() ->
+        {
+            if (request == latestRequest.get())
+            {
+                callback.accept(suggest(currentDirectory, typed));
+            }
+        });
+    }
+
+    // Splits the typed text into the directory typed so far and the name being typed
+    private List<String> suggest(Path currentDirectory, String typed)
+    {
+        String separator = currentDirectory.getFileSystem().getSeparator();
+        int cut = Math.max(typed.lastIndexOf('/'), typed.lastIndexOf(separator));
+        String parentPart = typed.substring(0, cut + 1);
+        String needle = typed.substring(cut + 1);
+
+        Path base;
+        try
+        {
+            base = currentDirectory.resolve(parentPart).normalize();
+        }
+        catch (InvalidPathException e)
+        {
+            return List.of();
+        }
+
+        index(base);
+
+        List<Path> matches = new ArrayList<>(trie.search(needle, path -> base.equals(path.getParent()), MAX_SUGGESTIONS));
+
+        // With no directory typed yet, fall back to recently seen directories anywhere
+        if (parentPart.isEmpty() && matches.size() < MAX_SUGGESTIONS)
+        {
+            for (Path path : trie.search(needle, path -> !base.equals(path.getParent()), MAX_SUGGESTIONS - matches.size()))
+            {
+                matches.add(path);
+            }
+        }
+
+        List<String> suggestions = new ArrayList<>(matches.size());
+        for (Path path : matches)
+        {
+            suggestions.add(path.startsWith(currentDirectory)
+                    ? currentDirectory.relativize(path).toString()
+                    : path.toString());
+        }
+        return suggestions;
+    }
+
+    // Lists a directory when it is needed and its last listing is missing or stale
+    private void index(Path directory)
+    {
+        Long listedAt = indexed.get(directory);
+        long now = System.currentTimeMillis();
+        if (listedAt != null && now - listedAt < REFRESH_MILLIS)
+        {
+            return;
+        }
+
+        List<Path> directories = new ArrayList<>();
+        try
+        {
+            for (FileItem item : fileManager.listDirectory(directory))
+            {
+                if (item.isDirectory())
+                {
+                    directories.add(item.getPath());
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            // Not a directory (any more); forget what it held and try again next time
+            trie.removeChildren(directory);
+            indexed.remove(directory);
+            return;
+        }
+        replace(directory, directories);
+        indexed.put(directory, now);
+    }
+
+    // Replaces the remembered subdirectories of a directory, so deleted ones stop being suggested
+    private void replace(Path directory, List<Path> directories)
+    {
+        trie.removeChildren(directory);
+        directories.forEach(trie::add);
+    }
+}
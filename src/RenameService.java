@@ -0,0 +1,661 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * RenameService - Renames many files of one directory at once, all or nothing.
+ *
+ * A plan applies a regular expression and a replacement template to every name in the
+ * directory. The template may refer to groups ($1) and to a counter: {n} is the position of the
+ * name among all matching names (in natural order, so "f2" before "f10"; starting at 1) and
+ * {n:4} the same padded to 4 digits.
+ *
+ * Since every name is renamed to a distinct target, the renames form independent chains
+ * (a → b while b → c) and cycles (a → b while b → a). Chains are executed from their end and
+ * cycles are broken with a temporary name, so no rename ever has to overwrite anything.
+ * Chains run in parallel. All steps are written to a journal first, and every step is marked
+ * done in it once it has happened. If any step fails, exactly the completed steps are undone,
+ * most recent first; an interrupted run can be rolled back the same way from the journal. The
+ * markers are only synced every SYNC_INTERVAL steps, since the steps whose markers were lost can
+ * still be recognised from which names exist.
+ */
+public class RenameService
+{
+    public static final String JOURNAL_NAME = ".bulk-rename.journal";
+
+    private static final String TEMP_PREFIX = ".bulk-rename-";
+    private static final String DONE_PREFIX = "done ";
+    private static final Pattern COUNTER = Pattern.compile("\\{n(?::(\\d+))?}");
+
+    // Chains handed to a worker at a time
+    private static final int BATCH_SIZE = 64;
+
+    // Steps a worker marks done between two syncs of the journal
+    private static final int SYNC_INTERVAL = 256;
+
+    private final FileManager fileManager;
+    private final ExecutorService workers;
+
+    /**
+     * Constructs a RenameService using all available processors.
+     *
+     * @param fileManager FileManager used for the individual renames.
+     */
+    public RenameService(FileManager fileManager)
+    {
+        this(fileManager, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a RenameService.
+     *
+     * @param fileManager FileManager used for the individual renames.
+     * @param parallelism Number of threads renaming at the same time.
+     */
+    public RenameService(FileManager fileManager, int parallelism)
+    {
+        this.fileManager = fileManager;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, runnable ->
+        {
+            Thread thread = new Thread(runnable, "bulk-rename-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Computes the new name of every file in a directory, without renaming anything.
+     *
+     * @param directory The directory whose entries are renamed.
+     * @param names     The names currently in the directory.
+     * @param regex     Regular expression; the first match in each name is replaced. Names without a match are kept.
+     * @param template  Replacement, with $1 for groups and {n} / {n:width} for the counter.
+     * @return The plan; check isValid() before executing it.
+     */
+    public static RenamePlan plan(Path directory, Collection<String> names, String regex, String template)
+    {
+        RenamePlan plan = new RenamePlan(directory);
+        Pattern pattern;
+        try
+        {
+            pattern = Pattern.compile(regex);
+        }
+        catch (PatternSyntaxException e)
+        {
+            plan.problems.add("Invalid pattern: " + e.getDescription());
+            return plan;
+        }
+
+        SortedSet<String> existing = new TreeSet<>(RenameService::compareNatural);
+        existing.addAll(names);
+        existing.remove(JOURNAL_NAME);
+        Map<String, List<String>> sourcesByTarget = new HashMap<>();
+        int counter = 0;
+        for (String name : existing)
+        {
+            if (!journalable(name))
+            {
+                plan.problems.add(name + ": contains a tab or line break");
+                continue;
+            }
+
+            Matcher matcher = pattern.matcher(name);
+            if (!matcher.find())
+            {
+                continue;
+            }
+
+            counter++;
+            String target;
+            try
+            {
+                matcher.reset();
+                target = matcher.replaceFirst(expandCounter(template, counter));
+            }
+            catch (IllegalArgumentException | IndexOutOfBoundsException e)
+            {
+                plan.problems.add("Invalid template: " + e.getMessage());
+                return plan;
+            }
+
+            if (target.equals(name))
+            {
+                plan.unchanged++;
+                continue;
+            }
+            if (target.isEmpty() || target.equals(".") || target.equals("..") || target.contains("/")
+                    || target.contains(directory.getFileSystem().getSeparator()) || !journalable(target))
+            {
+                plan.problems.add(name + " → \"" + target + "\": not a valid file name");
+                continue;
+            }
+
+            plan.renames.put(name, target);
+            sourcesByTarget.computeIfAbsent(target, key -> new ArrayList<>()).add(name);
+        }
+
+        for (Map.Entry<String, List<String>> target : sourcesByTarget.entrySet())
+        {
+            if (target.getValue().size() > 1)
+            {
+                plan.problems.add(String.join(", ", target.getValue()) + " → " + target.getKey() + ": same new name");
+            }
+            else if (existing.contains(target.getKey()) && !plan.renames.containsKey(target.getKey()))
+            {
+                plan.problems.add(target.getValue().get(0) + " → " + target.getKey() + ": already exists");
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Executes a valid plan: either every rename happens, or none does.
+     *
+     * @param plan The plan to execute.
+     * @return The number of files renamed.
+     * @throws IOException if a rename fails (after the completed ones are undone), or a previous run
+     *                     left a journal behind.
+     * @throws IllegalArgumentException if the plan has problems.
+     */
+    public int execute(RenamePlan plan) throws IOException
+    {
+        if (!plan.isValid())
+        {
+            throw new IllegalArgumentException("Rename plan can't be executed: " + plan.summary());
+        }
+
+        Path directory = plan.directory;
+        Path journal = directory.resolve(JOURNAL_NAME);
+        List<List<Step>> chains = schedule(plan.renames);
+
+        // Completed steps in the order they happened, across all chains
+        List<Step> done = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try (Journal log = Journal.create(journal, chains))
+        {
+            List<Future<?>> batches = new ArrayList<>();
+            for (int from = 0; from < chains.size(); from += BATCH_SIZE)
+            {
+                List<List<Step>> batch = chains.subList(from, Math.min(chains.size(), from + BATCH_SIZE));
+                batches.add(workers.submit(() -> runChains(directory, batch, log, done, failure)));
+            }
+            for (Future<?> batch : batches)
+            {
+                await(batch);
+            }
+        }
+
+        if (failure.get() != null)
+        {
+            try
+            {
+                undo(directory, done);
+                Files.delete(journal);
+            }
+            catch (IOException e)
+            {
+                e.addSuppressed(failure.get());
+                throw new IOException("Bulk rename failed and could not be rolled back, journal kept in "
+                        + journal + ": " + e.getMessage(), e);
+            }
+            throw new IOException("Bulk rename failed and was rolled back: " + failure.get().getMessage(), failure.get());
+        }
+
+        Files.delete(journal);
+        return plan.renames.size();
+    }
+
+    /**
+     * Checks whether an interrupted bulk rename left a journal in a directory.
+     *
+     * @param directory The directory to check.
+     * @return true if rollback(directory) has something to undo.
+     */
+    public static boolean hasJournal(Path directory)
+    {
+        return Files.exists(directory.resolve(JOURNAL_NAME));
+    }
+
+    /**
+     * Undoes the renames marked done in a directory's journal, most recent first, and removes the journal.
+     *
+     * @param directory The directory of the interrupted bulk rename.
+     * @return The number of renames undone.
+     * @throws IOException if there is no journal or a rename can't be undone (the journal is then kept).
+     */
+    public int rollback(Path directory) throws IOException
+    {
+        Path journal = directory.resolve(JOURNAL_NAME);
+        String text = Files.readString(journal, StandardCharsets.UTF_8);
+
+        // A line cut short by the interruption is ignored; its step is found below if it happened
+        List<String> lines = new ArrayList<>(Arrays.asList(text.split("\n", -1)));
+        lines.remove(lines.size() - 1);
+
+        List<List<Step>> chains = new ArrayList<>();
+        List<Step> steps = new ArrayList<>();
+        List<Step> done = new ArrayList<>();
+        List<Step> chain = null;
+        for (String line : lines)
+        {
+            int tab = line.indexOf('\t');
+            if (tab >= 0)
+            {
+                if (chain == null)
+                {
+                    chain = new ArrayList<>();
+                    chains.add(chain);
+                }
+                Step step = new Step(steps.size(), line.substring(0, tab), line.substring(tab + 1));
+                chain.add(step);
+                steps.add(step);
+            }
+            else if (line.startsWith(DONE_PREFIX))
+            {
+                try
+                {
+                    done.add(steps.get(Integer.parseInt(line.substring(DONE_PREFIX.length()))));
+                }
+                catch (NumberFormatException | IndexOutOfBoundsException e)
+                {
+                    throw new IOException("Damaged bulk rename journal " + journal + ": " + line, e);
+                }
+            }
+            else if (line.isEmpty())
+            {
+                chain = null;
+            }
+        }
+
+        // Markers not synced yet may be lost. A step's source is refilled by the chain's next step, so a source
+        // that is missing marks the last step of the chain that happened; every step before it happened too
+        Set<Step> marked = new HashSet<>(done);
+        for (List<Step> planned : chains)
+        {
+            int next = 0;
+            while (next < planned.size() && marked.contains(planned.get(next)))
+            {
+                next++;
+            }
+            int last = next - 1;
+            for (int i = planned.size() - 1; i >= next; i--)
+            {
+                if (Files.notExists(directory.resolve(planned.get(i).from)))
+                {
+                    last = i;
+                    break;
+                }
+            }
+            done.addAll(planned.subList(next, last + 1));
+        }
+
+        int undone = undo(directory, done);
+        Files.delete(journal);
+        return undone;
+    }
+
+    // Undoes completed steps, most recent first; steps already undone by an earlier attempt are skipped
+    private int undo(Path directory, List<Step> done) throws IOException
+    {
+        int undone = 0;
+        for (int i = done.size() - 1; i >= 0; i--)
+        {
+            Path from = directory.resolve(done.get(i).from);
+            Path to = directory.resolve(done.get(i).to);
+            if (Files.exists(from) && Files.notExists(to))
+            {
+                continue;
+            }
+            fileManager.rename(to, from);
+            undone++;
+        }
+        return undone;
+    }
+
+    // Orders the renames into independent chains of steps that never overwrite an existing name
+    private static List<List<Step>> schedule(Map<String, String> renames)
+    {
+        Map<String, String> sourceByTarget = new HashMap<>();
+        renames.forEach((source, target) -> sourceByTarget.put(target, source));
+
+        Set<String> scheduled = new HashSet<>();
+        List<List<Step>> chains = new ArrayList<>();
+        int index = 0;
+
+        // Chains: start at a target nobody moves away from, then walk back to the sources
+        for (Map.Entry<String, String> rename : renames.entrySet())
+        {
+            if (renames.containsKey(rename.getValue()))
+            {
+                continue;
+            }
+
+            List<Step> chain = new ArrayList<>();
+            String source = rename.getKey();
+            while (source != null)
+            {
+                chain.add(new Step(index++, source, renames.get(source)));
+                scheduled.add(source);
+                source = sourceByTarget.get(source);
+            }
+            chains.add(chain);
+        }
+
+        // Whatever is left forms cycles: park one name, rotate the rest, then move the parked one in
+        int temp = 0;
+        for (String start : renames.keySet())
+        {
+            if (scheduled.contains(start))
+            {
+                continue;
+            }
+
+            String parked = TEMP_PREFIX + UUID.randomUUID() + "-" + temp++ + ".tmp";
+            List<Step> cycle = new ArrayList<>();
+            cycle.add(new Step(index++, start, parked));
+            scheduled.add(start);
+
+            String source = sourceByTarget.get(start);
+            while (!source.equals(start))
+            {
+                cycle.add(new Step(index++, source, renames.get(source)));
+                scheduled.add(source);
+                source = sourceByTarget.get(source);
+            }
+            cycle.add(new Step(index++, parked, renames.get(start)));
+            chains.add(cycle);
+        }
+        return chains;
+    }
+
+    // Runs chains step by step, marking each step done; stops as soon as any worker has failed
+    private void runChains(Path directory, List<List<Step>> chains, Journal journal, List<Step> done,
+                           AtomicReference<Exception> failure)
+    {
+        int unsynced = 0;
+        try
+        {
+            for (List<Step> chain : chains)
+            {
+                for (Step step : chain)
+                {
+                    if (failure.get() != null)
+                    {
+                        return;
+                    }
+
+                    fileManager.rename(directory.resolve(step.from), directory.resolve(step.to));
+                    done.add(step);
+                    journal.markDone(step);
+                    if (++unsynced == SYNC_INTERVAL)
+                    {
+                        journal.sync();
+                        unsynced = 0;
+                    }
+                }
+            }
+            journal.sync();
+        }
+        catch (IOException | RuntimeException e)
+        {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    // Orders names with runs of digits compared by value, falling back to plain order for ties like "f01" / "f1"
+    private static int compareNatural(String a, String b)
+    {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length())
+        {
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            if (Character.isDigit(ca) && Character.isDigit(cb))
+            {
+                int endA = i;
+                int endB = j;
+                while (endA < a.length() && Character.isDigit(a.charAt(endA)))
+                {
+                    endA++;
+                }
+                while (endB < b.length() && Character.isDigit(b.charAt(endB)))
+                {
+                    endB++;
+                }
+
+                String digitsA = a.substring(i, endA).replaceFirst("^0+(?=.)", "");
+                String digitsB = b.substring(j, endB).replaceFirst("^0+(?=.)", "");
+                int result = digitsA.length() != digitsB.length()
+                        ? Integer.compare(digitsA.length(), digitsB.length())
+                        : digitsA.compareTo(digitsB);
+                if (result != 0)
+                {
+                    return result;
+                }
+                i = endA;
+                j = endB;
+            }
+            else
+            {
+                if (ca != cb)
+                {
+                    return Character.compare(ca, cb);
+                }
+                i++;
+                j++;
+            }
+        }
+        return a.length() - i != b.length() - j ? Integer.compare(a.length() - i, b.length() - j) : a.compareTo(b);
+    }
+
+    // The journal is tab- and line-separated
+    private static boolean journalable(String name)
+    {
+        return name.indexOf('\t') < 0 && name.indexOf('\n') < 0 && name.indexOf('\r') < 0;
+    }
+
+    private static String expandCounter(String template, int counter)
+    {
+        Matcher matcher = COUNTER.matcher(template);
+        StringBuilder expanded = new StringBuilder();
+        while (matcher.find())
+        {
+            String number = String.valueOf(counter);
+            if (matcher.group(1) != null)
+            {
+                number = "0".repeat(Math.max(0, Integer.parseInt(matcher.group(1)) - number.length())) + number;
+            }
+            matcher.appendReplacement(expanded, number);
+        }
+        matcher.appendTail(expanded);
+        return expanded.toString();
+    }
+
+    private static void await(Future<?> future) throws IOException
+    {
+        try
+        {
+            future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Bulk rename interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static final class Step
+    {
+        final int index;
+        final String from;
+        final String to;
+
+        Step(int index, String from, String to)
+        {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    // The steps (chains separated by an empty line), followed by a "done N" line per completed step
+    private static final class Journal implements AutoCloseable
+    {
+        private final FileChannel channel;
+        private final BufferedWriter writer;
+
+        private Journal(FileChannel channel)
+        {
+            this.channel = channel;
+            this.writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+        }
+
+        // Records every step (in execution order per chain) and syncs it before anything is renamed
+        static Journal create(Path path, List<List<Step>> chains) throws IOException
+        {
+            FileChannel channel;
+            try
+            {
+                channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+            }
+            catch (FileAlreadyExistsException e)
+            {
+                throw new IOException("An interrupted bulk rename must be rolled back first: " + path, e);
+            }
+
+            Journal journal = new Journal(channel);
+            try
+            {
+                journal.writer.write("# bulk rename journal: undo the steps marked done, last one first\n");
+                for (List<Step> chain : chains)
+                {
+                    for (Step step : chain)
+                    {
+                        journal.writer.write(step.from + "\t" + step.to + "\n");
+                    }
+                    journal.writer.write("\n");
+                }
+                journal.writer.flush();
+                channel.force(true);
+            }
+            catch (IOException e)
+            {
+                journal.close();
+                Files.deleteIfExists(path);
+                throw e;
+            }
+            return journal;
+        }
+
+        // Called right after a step has happened; buffered until the next sync
+        synchronized void markDone(Step step) throws IOException
+        {
+            writer.write(DONE_PREFIX + step.index + "\n");
+        }
+
+        // Makes the markers written so far durable; only the hand-over to the channel holds the lock
+        void sync() throws IOException
+        {
+            synchronized (this)
+            {
+                writer.flush();
+            }
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * RenamePlan - The renames a bulk rename would do, and why it can't, if it can't.
+     */
+    public static class RenamePlan
+    {
+        private final Path directory;
+        private final SortedMap<String, String> renames = new TreeMap<>();
+        private final List<String> problems = new ArrayList<>();
+        private int unchanged;
+
+        RenamePlan(Path directory)
+        {
+            this.directory = directory;
+        }
+
+        public Path getDirectory()
+        {
+            return directory;
+        }
+
+        public SortedMap<String, String> getRenames()
+        {
+            return Collections.unmodifiableSortedMap(renames);
+        }
+
+        public List<String> getProblems()
+        {
+            return problems;
+        }
+
+        public boolean isValid()
+        {
+            return problems.isEmpty() && !renames.isEmpty();
+        }
+
+        /**
+         * Returns a one-line summary of the plan.
+         *
+         * @return Summary text.
+         */
+        public String summary()
+        {
+            if (!problems.isEmpty())
+            {
+                return problems.size() + " problem(s), nothing will be renamed";
+            }
+            if (renames.isEmpty())
+            {
+                return unchanged == 0 ? "No names match" : "Nothing would change: " + unchanged + " matching name(s) stay the same";
+            }
+            return renames.size() + " file(s) will be renamed" + (unchanged == 0 ? "" : ", " + unchanged + " stay the same");
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder preview = new StringBuilder(summary()).append('\n');
+            for (String problem : problems)
+            {
+                preview.append("  ! ").append(problem).append('\n');
+            }
+            renames.forEach((from, to) -> preview.append("  ").append(from).append(" → ").append(to).append('\n'));
+            return preview.toString();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * TreeGenerator - Builds a synthetic directory tree from a shape: fan-out, depth and file sizes.
+ *
+ * Every directory gets the same number of files, and every directory above the given depth the
+ * same number of subdirectories. The same shape and seed always produce the same tree, so a
+ * recorded workload can be replayed later against an identical tree.
+ */
+public class TreeGenerator
+{
+    // Printable text that file contents are cut from, so reads can decode them as UTF-8
+    private static final String TEXT;
+
+    static
+    {
+        Random random = new Random(0);
+        StringBuilder text = new StringBuilder(64 * 1024);
+        while (text.length() < 64 * 1024)
+        {
+            text.append(random.nextInt(10) == 0 ? '\n' : (char) ('a' + random.nextInt(26)));
+        }
+        TEXT = text.toString();
+    }
+
+    private final int fanOut;
+    private final int depth;
+    private final int filesPerDirectory;
+    private final SizeDistribution sizes;
+    private final long seed;
+
+    /**
+     * Constructs a TreeGenerator.
+     *
+     * @param fanOut            Subdirectories per directory.
+     * @param depth             Levels of subdirectories below the root.
+     * @param filesPerDirectory Files in every directory, including the root.
+     * @param sizes             Distribution of file sizes.
+     * @param seed              Random seed for the file sizes.
+     */
+    public TreeGenerator(int fanOut, int depth, int filesPerDirectory, SizeDistribution sizes, long seed)
+    {
+        this.fanOut = fanOut;
+        this.depth = depth;
+        this.filesPerDirectory = filesPerDirectory;
+        this.sizes = sizes;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates the tree below a root directory.
+     *
+     * @param fileManager FileManager used to create the files and directories.
+     * @param root        Root directory; created if missing, and expected to be empty.
+     * @return The generated directories and files.
+     * @throws IOException if anything can't be created.
+     */
+    public Tree generate(FileManager fileManager, Path root) throws IOException
+    {
+        long start = System.nanoTime();
+        Files.createDirectories(root);
+        Tree tree = new Tree();
+        fill(fileManager, root, 0, new Random(seed), tree);
+        tree.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return tree;
+    }
+
+    /**
+     * Returns printable content of the given length.
+     *
+     * @param size Length in characters (bytes, since the text is ASCII).
+     * @return The content.
+     */
+    public static String content(long size)
+    {
+        if (size <= TEXT.length())
+        {
+            return TEXT.substring(0, (int) size);
+        }
+
+        StringBuilder content = new StringBuilder((int) size);
+        while (content.length() < size)
+        {
+            content.append(TEXT, 0, (int) Math.min(TEXT.length(), size - content.length()));
+        }
+        return content.toString();
+    }
+
+    // Depth-first, so the directory a file goes into always exists already
+    private void fill(FileManager fileManager, Path directory, int level, Random random, Tree tree) throws IOException
+    {
+        tree.directories.add(directory);
+        for (int i = 0; i < filesPerDirectory; i++)
+        {
+            Path file = directory.resolve("file-" + i + ".txt");
+            long size = sizes.next(random);
+            fileManager.createFile(file, content(size));
+            tree.files.add(file);
+            tree.bytes += size;
+        }
+
+        if (level < depth)
+        {
+            for (int i = 0; i < fanOut; i++)
+            {
+                Path subdirectory = directory.resolve("dir-" + i);
+                fileManager.createDirectory(subdirectory);
+                fill(fileManager, subdirectory, level + 1, random, tree);
+            }
+        }
+    }
+
+    /**
+     * Tree - The directories and files of a generated tree.
+     */
+    public static class Tree
+    {
+        private final List<Path> directories = new ArrayList<>();
+        private final List<Path> files = new ArrayList<>();
+        private long bytes;
+        private long elapsedMillis;
+
+        public List<Path> getDirectories()
+        {
+            return directories;
+        }
+
+        public List<Path> getFiles()
+        {
+            return files;
+        }
+
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        public long getElapsedMillis()
+        {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString()
+        {
+            return directories.size() + " directories, " + files.size() + " files, " + bytes + " bytes in "
+                    + elapsedMillis + " ms";
+        }
+    }
+
+    /**
+     * SizeDistribution - File sizes to generate.
+     *
+     * Parsed from "4096" (fixed), "512-65536" (uniform between the bounds) or "lognormal:4096"
+     * (log-normal around a median, so most files are small and a few are much larger).
+     */
+    public abstract static class SizeDistribution
+    {
+        // Log-normal sizes are capped so a single unlucky draw can't dominate the run
+        private static final long MAX_SIZE = 64L * 1024 * 1024;
+
+        private final String spec;
+
+        private SizeDistribution(String spec)
+        {
+            this.spec = spec;
+        }
+
+        /**
+         * Draws the next size.
+         *
+         * @param random Source of randomness.
+         * @return A size in bytes.
+         */
+        public abstract long next(Random random);
+
+        /**
+         * Parses a size distribution.
+         *
+         * @param spec "N", "MIN-MAX" or "lognormal:MEDIAN".
+         * @return The distribution.
+         * @throws IllegalArgumentException if the spec can't be parsed.
+         */
+        public static SizeDistribution parse(String spec)
+        {
+            try
+            {
+                if (spec.startsWith("lognormal:"))
+                {
+                    long median = Long.parseLong(spec.substring("lognormal:".length()));
+                    return new SizeDistribution(spec)
+                    {
+                        @Override
+                        public long next(Random random)
+                        {
+                            return Math.min(MAX_SIZE, Math.round(median * Math.exp(random.nextGaussian())));
+                        }
+                    };
+                }
+
+                int dash = spec.indexOf('-');
+                if (dash > 0)
+                {
+                    long min = Long.parseLong(spec.substring(0, dash));
+                    long max = Long.parseLong(spec.substring(dash + 1));
+                    if (max < min)
+                    {
+                        throw new IllegalArgumentException("Size range is empty: " + spec);
+                    }
+                    return new SizeDistribution(spec)
+                    {
+                        @Override
+                        public long next(Random random)
+                        {
+                            return min + (long) (random.nextDouble() * (max - min + 1));
+                        }
+                    };
+                }
+
+                long size = Long.parseLong(spec);
+                return new SizeDistribution(spec)
+                {
+                    @Override
+                    public long next(Random random)
+                    {
+                        return size;
+                    }
+                };
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IllegalArgumentException("Invalid size distribution: " + spec, e);
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return spec;
+        }
+    }
+}